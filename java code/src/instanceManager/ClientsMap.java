@@ -161,7 +161,7 @@ public class ClientsMap extends Layer {
 	 * @param c	the client we want to re-compute the coordinates of
 	 */
 	public void redrawClient(int c) {
-		this.sites[c].setCoordinates(drawClient());
+		this.setSiteCoords(c, drawClient());
 	}
 
 	protected String getDescID() {
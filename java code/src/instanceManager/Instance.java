@@ -29,6 +29,9 @@ public class Instance {
 	private DemandsMap demands;
 	private String instID;
 	private int demandProfile;
+	private int[] lvlOffsets;			// Index of the first site of each level in the travel times matrix (the supplier is the site 0)
+	private int nbNodes;				// Total number of sites in the travel times matrix (supplier, depots of every level and clients)
+	private double[] travelTimes;		// Flat matrix of the travel times between every pair of sites (travelTimes[i * nbNodes + j] is the time from i to j)
 
 	/*
 	 * CONSTRUCTORS
@@ -69,6 +72,8 @@ public class Instance {
 			this.planningHorizon = planningHorizon;
 			/* Generate a unique ID */
 			this.generateID();
+			/* Compute the travel times between all the sites */
+			this.computeTravelTimes();
 
 			System.out.println("Instance created successfully.");
 		}
@@ -127,6 +132,7 @@ public class Instance {
 			this.planningHorizon = planningHorizon;
 
 			this.generateID();
+			this.computeTravelTimes();
 
 			System.out.println("Instance created successfully.");
 		}
@@ -186,6 +192,8 @@ public class Instance {
 			this.gridSize = Math.max(this.gridSize, this.clients.getGridSize());
 
 			this.instID = jsonInstanceObject.getString("id");
+
+			this.computeTravelTimes();
 		}
 		catch(IOException ioe) {
 			System.out.println("Problem while reading the JSON file");
@@ -346,6 +354,55 @@ public class Instance {
 		return this.clients.getNbSites();
 	}
 
+	/**
+	 * Get the locations of a level of the network that are close to a given location
+	 * @param lvl		the level of interest in the network
+	 * @param loc		the location of interest (on any level)
+	 * @param radius	the maximum distance between loc and the locations returned
+	 * @return			the indices of the locations of level lvl at a distance lower than or equal to radius from loc, in increasing order
+	 */
+	public int[] getLocationsWithin(int lvl, Location loc, double radius) {
+		if(lvl < 0)
+			return new int[0];
+		if(lvl < this.depots.length)
+			return this.depots[lvl].getSitesWithin(loc.getCoordinates(), radius);
+		return this.clients.getSitesWithin(loc.getCoordinates(), radius);
+	}
+
+	/**
+	 * Get the index of a site in the travel times matrix
+	 * @param lvl	the level of the site (-1 for the supplier)
+	 * @param loc	the index of the site on its level
+	 * @return		the index of the site in the travel times matrix
+	 */
+	public int getNodeIndex(int lvl, int loc) {
+		if(lvl < 0)
+			return 0;
+		return this.lvlOffsets[lvl] + loc;
+	}
+
+	/**
+	 * Get the travel time between two sites from their indices in the travel times matrix
+	 * @param fromNode	the index of the origin site
+	 * @param toNode	the index of the destination site
+	 * @return			the time (in hours) to travel from the origin to the destination
+	 */
+	public double getTravelTime(int fromNode, int toNode) {
+		return this.travelTimes[fromNode * this.nbNodes + toNode];
+	}
+
+	/**
+	 * Get the travel time between two sites of the network
+	 * @param lvlFrom	the level of the origin site (-1 for the supplier)
+	 * @param from		the index of the origin site on its level
+	 * @param lvlTo		the level of the destination site (-1 for the supplier)
+	 * @param to		the index of the destination site on its level
+	 * @return			the time (in hours) to travel from the origin to the destination
+	 */
+	public double getTravelTime(int lvlFrom, int from, int lvlTo, int to) {
+		return this.getTravelTime(this.getNodeIndex(lvlFrom, from), this.getNodeIndex(lvlTo, to));
+	}
+
 	/*
 	 * MUTATORS
 	 */
@@ -366,6 +423,7 @@ public class Instance {
 	 */
 	public void drawDepot(int lvl, int d) {
 		this.depots[lvl].drawDepot(d);
+		this.updateTravelTimes(this.getNodeIndex(lvl, d));
 	}
 
 	/**
@@ -374,6 +432,7 @@ public class Instance {
 	 */
 	public void drawClient(int c) {
 		this.clients.redrawClient(c);
+		this.updateTravelTimes(this.getNodeIndex(this.getNbLevels() - 1, c));
 	}
 
 	public void assignDemands() {
@@ -396,7 +455,7 @@ public class Instance {
 	}
 	
 	/**
-	 * Generate an ID for this instance
+	 * Generate an ID for this instance, drawn from the seeded random stream so that a generation can be reproduced
 	 */
 	private void generateID() {
 		this.instID = this.getNbLevels() + "l";
@@ -404,12 +463,58 @@ public class Instance {
 			this.instID += this.getNbDepots(lvl) + "dc" + lvl + "-";
 		}
 		int nbCities = (this.clients.getCitiesMap() == null) ? 0 : this.clients.getCitiesMap().getNbSites();
-		this.instID += this.getNbClients() + "r-" + nbCities + "c-" + this.planningHorizon + "p-" + this.getDemandProfile() + "_" + UUID.randomUUID().toString();
+		this.instID += this.getNbClients() + "r-" + nbCities + "c-" + this.planningHorizon + "p-" + this.getDemandProfile() + "_" + new UUID(Config.RAND.nextLong(), Config.RAND.nextLong()).toString();
 	}
 
 	/*
 	 * METHODS
 	 */
+	/**
+	 * Get the Location object corresponding to an index of the travel times matrix
+	 * @param node	the index of the site in the travel times matrix
+	 * @return		the supplier, depot or client corresponding to node
+	 */
+	private Location getNode(int node) {
+		if(node == 0)
+			return this.supplier;
+		int lvl = this.depots.length;
+		while(node < this.lvlOffsets[lvl])
+			lvl--;
+		if(lvl < this.depots.length)
+			return this.depots[lvl].getSite(node - this.lvlOffsets[lvl]);
+		return this.clients.getSite(node - this.lvlOffsets[lvl]);
+	}
+
+	/**
+	 * Build the matrix of the travel times between every pair of sites of the instance
+	 */
+	private void computeTravelTimes() {
+		this.lvlOffsets = new int[this.getNbLevels()];
+		this.nbNodes = 1;
+		for(int lvl = 0; lvl < this.getNbLevels(); lvl++) {
+			this.lvlOffsets[lvl] = this.nbNodes;
+			this.nbNodes += this.getNbLocations(lvl);
+		}
+
+		this.travelTimes = new double[this.nbNodes * this.nbNodes];
+		for(int node = 0; node < this.nbNodes; node++) {
+			this.updateTravelTimes(node);
+		}
+	}
+
+	/**
+	 * Re-compute the travel times from and to a site (after it has been moved on the map)
+	 * @param node	the index of the site in the travel times matrix
+	 */
+	private void updateTravelTimes(int node) {
+		Location nodeLoc = this.getNode(node);
+		for(int other = 0; other < this.nbNodes; other++) {
+			double time = nodeLoc.getDistance(this.getNode(other)) / Config.AVG_SPEED;
+			this.travelTimes[node * this.nbNodes + other] = time;
+			this.travelTimes[other * this.nbNodes + node] = time;
+		}
+	}
+
 	/**
 	 * Create a new JSON object to store the Instance object
 	 * @return	a JSON object containing all attributes and components of the LIRP instance
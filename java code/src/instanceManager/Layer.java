@@ -16,6 +16,7 @@ public abstract class Layer {
 	protected int nbSites; // Number of sites on the map
 	protected Location[] sites; // Coordinates of the different sites
 	protected String mapID;
+	private SiteGrid siteGrid; // Spatial index of the sites (built at the first query)
 
 	/*
 	 * CONSTRUCTORS
@@ -116,6 +117,8 @@ public abstract class Layer {
 	 */
 	protected void setSiteCoords(int siteIndex, Point2D loc) {
 		this.sites[siteIndex].setCoordinates(loc);
+		if(this.siteGrid != null)
+			this.siteGrid.update(siteIndex, loc);
 	}
 
 	/**
@@ -124,16 +127,8 @@ public abstract class Layer {
 	 * @return		the closest site of the Layer object to loc
 	 */
 	public Location findClosestSiteTo(Point2D loc) {
-		double minDist = this.gridSize;
-		Location closestSite = null;
-		for(int sIter = 0; sIter < nbSites; sIter++) {
-			double distWithSite = loc.distance(this.sites[sIter].getCoordinates());
-			if(distWithSite < minDist) {
-				minDist = distWithSite;
-				closestSite = this.sites[sIter];
-			}
-		}
-		return closestSite;
+		int closestIndex = this.getSiteGrid().findClosest(loc, this.gridSize);
+		return (closestIndex > -1) ? this.sites[closestIndex] : null;
 	}
 	
 	/**
@@ -158,9 +153,34 @@ public abstract class Layer {
 		return 2 * this.gridSize;
 	}
 
+	/**
+	 * Get the sites of the map located within a given distance of a point
+	 * @param loc		the point of interest
+	 * @param radius	the maximum distance between loc and the sites
+	 * @return			the indices of the sites at a distance lower than or equal to radius from loc, in increasing order
+	 */
+	public int[] getSitesWithin(Point2D loc, double radius) {
+		return this.getSiteGrid().getSitesWithin(loc, radius);
+	}
+
 	/*
 	 * PROTECTED METHODS
 	 */
+	/**
+	 * 
+	 * @return	the spatial index of the sites, built from their current coordinates if it does not exist yet
+	 */
+	protected SiteGrid getSiteGrid() {
+		if(this.siteGrid == null) {
+			this.siteGrid = new SiteGrid(this.gridSize, this.nbSites);
+			for(int sIndex = 0; sIndex < this.nbSites; sIndex++) {
+				if(this.sites[sIndex] != null)
+					this.siteGrid.update(sIndex, this.sites[sIndex].getCoordinates());
+			}
+		}
+		return this.siteGrid;
+	}
+
 	/**
 	 * Generate an ID for this map
 	 */
@@ -1,7 +1,6 @@
 package instanceManager;
 
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import tools.Config;
 
 public class Mask {
 
@@ -75,10 +74,9 @@ public class Mask {
 		}
 		
 		/* Shuffle as many elements in the array indices as there are active sites */
-		Random rnd = ThreadLocalRandom.current();
 		/* Fill an array with the indices of possible routes */
 		for (int nbElts = 0; nbElts < this.activeSites.length; nbElts++) {
-			int swapIndex = rnd.nextInt(this.activeSites.length - nbElts);
+			int swapIndex = Config.RAND.nextInt(this.activeSites.length - nbElts);
 			/* Save the selected index to the active sites list */
 			this.activeSites[nbElts] = indices[swapIndex];
 			/* Replace the last element at the position of the last selected index */
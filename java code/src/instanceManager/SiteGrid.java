@@ -0,0 +1,181 @@
+package instanceManager;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the sites of a layer, to find the sites close to a point without scanning the whole layer.
+ * The map is split into square cells and each cell keeps the indices of the sites located in it. The sites outside
+ * of the map are stored in the cells of its border, so that the queries remain exact for any coordinates.
+ * @author gmas
+ *
+ */
+public class SiteGrid {
+
+	private int nbCellsSide;		// Number of cells on each side of the grid
+	private double cellSize;		// Length of the side of a cell
+	private Point2D[] coords;		// Coordinates of the sites indexed (null if a site is not indexed)
+	private int[] siteCell;			// Cell in which each site is stored (-1 if the site is not indexed)
+	private int[][] cellSites;		// Indices of the sites stored in each cell (the first cellSizes[cell] elements only)
+	private int[] cellSizes;		// Number of sites stored in each cell
+
+	/**
+	 * Create an empty grid covering a square map
+	 * @param gridSize	the size of the map
+	 * @param nbSites	the number of sites that can be stored in the grid
+	 */
+	public SiteGrid(double gridSize, int nbSites) {
+		/* Around one site per cell on average */
+		this.nbCellsSide = Math.max(1, (int) Math.ceil(Math.sqrt(nbSites)));
+		this.cellSize = (gridSize > 0) ? gridSize / this.nbCellsSide : 1;
+		this.coords = new Point2D[nbSites];
+		this.siteCell = new int[nbSites];
+		Arrays.fill(this.siteCell, -1);
+		this.cellSites = new int[this.nbCellsSide * this.nbCellsSide][];
+		this.cellSizes = new int[this.nbCellsSide * this.nbCellsSide];
+	}
+
+	/*
+	 * MUTATORS
+	 */
+	/**
+	 * Store a site at new coordinates, removing it from its previous cell if it was already in the grid
+	 * @param site		the index of the site
+	 * @param siteLoc	the new coordinates of the site (null to remove the site from the grid)
+	 */
+	public void update(int site, Point2D siteLoc) {
+		if(this.siteCell[site] > -1) {
+			int cell = this.siteCell[site];
+			int[] sitesInCell = this.cellSites[cell];
+			int pos = 0;
+			while(sitesInCell[pos] != site)
+				pos++;
+			System.arraycopy(sitesInCell, pos + 1, sitesInCell, pos, this.cellSizes[cell] - pos - 1);
+			this.cellSizes[cell]--;
+			this.siteCell[site] = -1;
+		}
+		this.coords[site] = siteLoc;
+		if(siteLoc != null) {
+			int cell = this.getCellRow(siteLoc.getY()) * this.nbCellsSide + this.getCellCol(siteLoc.getX());
+			if(this.cellSites[cell] == null)
+				this.cellSites[cell] = new int[4];
+			else if(this.cellSizes[cell] == this.cellSites[cell].length)
+				this.cellSites[cell] = Arrays.copyOf(this.cellSites[cell], 2 * this.cellSizes[cell]);
+			this.cellSites[cell][this.cellSizes[cell]++] = site;
+			this.siteCell[site] = cell;
+		}
+	}
+
+	/*
+	 * QUERIES
+	 */
+	/**
+	 * Get the sites located within a given distance of a point
+	 * @param center	the point of interest
+	 * @param radius	the maximum distance between center and the sites returned
+	 * @return			the indices of the sites whose distance to center is lower than or equal to radius, in increasing order
+	 */
+	public int[] getSitesWithin(Point2D center, double radius) {
+		int[] sitesWithin = new int[16];
+		int nbWithin = 0;
+		int minRow = this.getCellRow(center.getY() - radius);
+		int maxRow = this.getCellRow(center.getY() + radius);
+		int minCol = this.getCellCol(center.getX() - radius);
+		int maxCol = this.getCellCol(center.getX() + radius);
+		for(int row = minRow; row <= maxRow; row++) {
+			for(int col = minCol; col <= maxCol; col++) {
+				int cell = row * this.nbCellsSide + col;
+				for(int pos = 0; pos < this.cellSizes[cell]; pos++) {
+					int site = this.cellSites[cell][pos];
+					if(center.distance(this.coords[site]) <= radius) {
+						if(nbWithin == sitesWithin.length)
+							sitesWithin = Arrays.copyOf(sitesWithin, 2 * nbWithin);
+						sitesWithin[nbWithin++] = site;
+					}
+				}
+			}
+		}
+		sitesWithin = Arrays.copyOf(sitesWithin, nbWithin);
+		Arrays.sort(sitesWithin);
+		return sitesWithin;
+	}
+
+	/**
+	 * Get the site closest to a point, searching the cells ring by ring around the point
+	 * @param loc		the point of interest
+	 * @param maxDist	the distance above which the sites are ignored
+	 * @return			the index of the closest site strictly within maxDist of loc (the lowest index among sites at the same distance), -1 if there is none
+	 */
+	public int findClosest(Point2D loc, double maxDist) {
+		int row = this.getCellRow(loc.getY());
+		int col = this.getCellCol(loc.getX());
+		double minDist = maxDist;
+		int closestSite = -1;
+		for(int ring = 0; ring < this.nbCellsSide; ring++) {
+			/* Any site outside of the rings already visited is at least at this distance from loc */
+			if(ring > 0 && this.getRingDist(loc, row, col, ring) > minDist)
+				break;
+			for(int r = Math.max(0, row - ring); r <= Math.min(this.nbCellsSide - 1, row + ring); r++) {
+				/* Visit the whole first and last rows of the ring, and only the two extreme columns of the other rows */
+				int step = (r == row - ring || r == row + ring) ? 1 : 2 * ring;
+				for(int c = col - ring; c <= col + ring; c += Math.max(1, step)) {
+					if(c < 0 || c >= this.nbCellsSide)
+						continue;
+					int cell = r * this.nbCellsSide + c;
+					for(int pos = 0; pos < this.cellSizes[cell]; pos++) {
+						int site = this.cellSites[cell][pos];
+						double dist = loc.distance(this.coords[site]);
+						if(dist < minDist || (dist == minDist && closestSite > -1 && site < closestSite)) {
+							minDist = dist;
+							closestSite = site;
+						}
+					}
+				}
+			}
+		}
+		return closestSite;
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 *
+	 * @param x	an abscissa
+	 * @return	the column of the cell containing x (the border column if x is out of the map)
+	 */
+	private int getCellCol(double x) {
+		return (int) Math.max(0, Math.min(this.nbCellsSide - 1, Math.floor(x / this.cellSize)));
+	}
+
+	/**
+	 *
+	 * @param y	an ordinate
+	 * @return	the row of the cell containing y (the border row if y is out of the map)
+	 */
+	private int getCellRow(double y) {
+		return (int) Math.max(0, Math.min(this.nbCellsSide - 1, Math.floor(y / this.cellSize)));
+	}
+
+	/**
+	 * Lower bound on the distance between a point and the sites stored in the cells at a given ring around the cell of the point
+	 * @param loc	the point of interest
+	 * @param row	the row of the cell containing loc
+	 * @param col	the column of the cell containing loc
+	 * @param ring	the distance (in number of cells) between the cells of the ring and the cell of loc
+	 * @return		the minimum distance between loc and a site in the ring
+	 */
+	private double getRingDist(Point2D loc, int row, int col, int ring) {
+		/* The border cells also contain the sites out of the map, the bound only holds in the directions where the ring is inside the grid */
+		double dist = Double.MAX_VALUE;
+		if(col - ring >= 0)
+			dist = Math.min(dist, loc.getX() - (col - ring + 1) * this.cellSize);
+		if(col + ring < this.nbCellsSide)
+			dist = Math.min(dist, (col + ring) * this.cellSize - loc.getX());
+		if(row - ring >= 0)
+			dist = Math.min(dist, loc.getY() - (row - ring + 1) * this.cellSize);
+		if(row + ring < this.nbCellsSide)
+			dist = Math.min(dist, (row + ring) * this.cellSize - loc.getY());
+		return dist;
+	}
+}
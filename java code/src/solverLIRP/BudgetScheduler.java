@@ -0,0 +1,174 @@
+package solverLIRP;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Scheduler of the time budget of a run of the route sampling method. The time left is measured on the wall clock, so that the
+ * time a sub-solve does not use is given back to the pending ones. For each phase of the run, the scheduler keeps the number of
+ * sub-solves still to do and the durations and gaps of the finished ones: when some sub-solves of a phase close their gap quickly
+ * and others reach their time limit, the next sub-solves get the share of the time that the hard ones need, the easy ones
+ * stopping before their limit anyway.
+ * @author gmas
+ *
+ */
+public class BudgetScheduler {
+
+	public static final String PRESOLVE = "presolve";	// Resolutions of the linear relaxation to collect a first pool of routes
+	public static final String PARTIAL = "partial";		// Resolutions of the subsets of routes
+	public static final String FINAL = "final";			// Resolutions on the routes collected after the last iteration
+
+	private static final double CLOSED_GAP = 1e-4;		// Relative gap under which a sub-solve is considered solved to optimality
+
+	private long startTime;				// The wall-clock time at the start of the run, in milliseconds
+	private double budget;				// The total time of the run, in seconds
+	private double reserve;				// The time kept for the final resolution, in seconds
+	private double minTimeLimit;		// The minimum time limit of a sub-solve (if the time left allows it), in seconds
+	private LinkedHashMap<String, PhaseStats> phases = new LinkedHashMap<String, PhaseStats>();	// The statistics of each phase, in the order of their first sub-solve
+
+	/**
+	 * Create a scheduler and start its clock
+	 * @param budget		the total time of the run, in seconds
+	 * @param reserve		the time kept for the final resolution, in seconds
+	 * @param minTimeLimit	the minimum time limit of a sub-solve (if the time left allows it), in seconds
+	 */
+	public BudgetScheduler(double budget, double reserve, double minTimeLimit) {
+		this(budget, reserve, minTimeLimit, 0);
+	}
+
+	/**
+	 * Create a scheduler for a run that already used a part of its budget (when it resumes from a checkpoint)
+	 * @param budget		the total time of the run, in seconds
+	 * @param reserve		the time kept for the final resolution, in seconds
+	 * @param minTimeLimit	the minimum time limit of a sub-solve (if the time left allows it), in seconds
+	 * @param elapsed		the time already elapsed in the run, in seconds
+	 */
+	public BudgetScheduler(double budget, double reserve, double minTimeLimit, double elapsed) {
+		this.startTime = System.currentTimeMillis() - (long) (elapsed * 1000);
+		this.budget = budget;
+		this.reserve = reserve;
+		this.minTimeLimit = minTimeLimit;
+	}
+
+	/**
+	 * Start a new round of sub-solves in a phase, the statistics of the previous rounds of the phase are kept
+	 * @param phase			the name of the phase
+	 * @param nbSolves		the number of sub-solves expected in the round (including those of the next rounds that should share its time)
+	 * @param nbConcurrent	the number of sub-solves running at the same time
+	 * @param phaseBudget	the maximum time spent in the round, in seconds (Double.POSITIVE_INFINITY if there is no limit)
+	 */
+	public synchronized void openPhase(String phase, double nbSolves, int nbConcurrent, double phaseBudget) {
+		PhaseStats stats = this.getStats(phase);
+		stats.pending = nbSolves;
+		stats.nbConcurrent = Math.max(1, nbConcurrent);
+		stats.budgetLeft = phaseBudget;
+	}
+
+	/**
+	 * Compute the time limit of the next sub-solve of a phase. The time available is shared between the pending sub-solves of
+	 * the phase; if some of its sub-solves close their gap and others do not, the time that the easy ones are expected to use is
+	 * removed first, and the rest is shared between the hard ones.
+	 * @param phase	the name of the phase
+	 * @return		the time limit of the next sub-solve, in seconds
+	 */
+	public synchronized double allocate(String phase) {
+		PhaseStats stats = this.getStats(phase);
+		double available = Math.min(this.getRemaining() - (phase.equals(FINAL) ? 0 : this.reserve), stats.budgetLeft);
+		if(available <= 0)
+			return 0;
+		/* Number of sub-solves still to run one after another */
+		double nbSlots = Math.max(1, stats.pending / stats.nbConcurrent);
+		double timeLimit = available / nbSlots;
+		if(stats.nbClosed > 0 && stats.nbClosed < stats.nbSolves) {
+			double closedShare = ((double) stats.nbClosed) / stats.nbSolves;
+			double easyTime = nbSlots * closedShare * stats.closedTime / stats.nbClosed;
+			double hardSlots = Math.max(1, nbSlots * (1 - closedShare));
+			timeLimit = Math.max(timeLimit, (available - easyTime) / hardSlots);
+		}
+		/* The minimum time limit cannot take the share of the other sub-solves of a phase with a budget */
+		double minTimeLimit = this.minTimeLimit;
+		if(!Double.isInfinite(stats.budgetLeft))
+			minTimeLimit = Math.min(minTimeLimit, stats.budgetLeft / nbSlots);
+		return Math.min(Math.max(timeLimit, minTimeLimit), available);
+	}
+
+	/**
+	 * Record the result of a sub-solve
+	 * @param phase		the name of the phase
+	 * @param duration	the time spent in the sub-solve, in seconds
+	 * @param gap		the relative gap of the sub-solve at its end (Double.POSITIVE_INFINITY if it has no solution)
+	 */
+	public synchronized void record(String phase, double duration, double gap) {
+		PhaseStats stats = this.getStats(phase);
+		stats.pending = Math.max(0, stats.pending - 1);
+		stats.budgetLeft -= duration;
+		stats.nbSolves++;
+		stats.totalTime += duration;
+		if(gap <= CLOSED_GAP) {
+			stats.nbClosed++;
+			stats.closedTime += duration;
+		}
+		if(!Double.isInfinite(gap)) {
+			stats.nbGaps++;
+			stats.totalGap += gap;
+		}
+	}
+
+	/**
+	 *
+	 * @return	the time elapsed since the start of the run, in seconds
+	 */
+	public double getElapsed() {
+		return (System.currentTimeMillis() - this.startTime) / 1000.0;
+	}
+
+	/**
+	 *
+	 * @return	the time left in the budget of the run, in seconds
+	 */
+	public double getRemaining() {
+		return this.budget - this.getElapsed();
+	}
+
+	/**
+	 * Print the number of sub-solves, the number of sub-solves that closed their gap, their average duration and gap in each phase
+	 */
+	public synchronized void printSummary() {
+		for(Map.Entry<String, PhaseStats> phaseStats : this.phases.entrySet()) {
+			PhaseStats stats = phaseStats.getValue();
+			if(stats.nbSolves > 0) {
+				System.out.println("Phase " + phaseStats.getKey() + ": " + stats.nbSolves + " solves (" + stats.nbClosed + " closed), average time "
+						+ (stats.totalTime / stats.nbSolves) + "s, average gap " + ((stats.nbGaps > 0) ? stats.totalGap / stats.nbGaps : Double.NaN));
+			}
+		}
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 *
+	 * @param phase	the name of the phase
+	 * @return		the statistics of the phase, created empty if there is no sub-solve of the phase yet
+	 */
+	private PhaseStats getStats(String phase) {
+		if(this.phases.get(phase) == null)
+			this.phases.put(phase, new PhaseStats());
+		return this.phases.get(phase);
+	}
+
+	/**
+	 * Statistics of the sub-solves of a phase
+	 */
+	private static class PhaseStats {
+		private double pending = 1;								// The number of sub-solves still expected in the current round
+		private int nbConcurrent = 1;							// The number of sub-solves running at the same time
+		private double budgetLeft = Double.POSITIVE_INFINITY;	// The time left for the current round, in seconds
+		private int nbSolves;									// The number of finished sub-solves
+		private int nbClosed;									// The number of finished sub-solves that closed their gap
+		private double totalTime;								// The total duration of the finished sub-solves, in seconds
+		private double closedTime;								// The total duration of the sub-solves that closed their gap, in seconds
+		private int nbGaps;										// The number of finished sub-solves with a solution
+		private double totalGap;								// The sum of the gaps of the finished sub-solves with a solution
+	}
+}
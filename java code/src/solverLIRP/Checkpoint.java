@@ -0,0 +1,382 @@
+package solverLIRP;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+
+import instanceManager.Instance;
+import tools.Config;
+
+/**
+ * State of a run of the route sampling method saved to a binary file, from which an interrupted run can resume. The file
+ * starts with the same header as a route pool file, followed by the time elapsed in the run, the seed of its random stream,
+ * the pool of multi-stops routes from which the subsets are sampled, the routes collected by the last iteration with their
+ * elite scores and the best solution found so far. The solution only keeps its used routes and the quantities they deliver.
+ * A checkpoint is written to a temporary file first and then renamed, so that a run killed while writing it leaves the
+ * previous checkpoint intact.
+ * @author gmas
+ *
+ */
+public class Checkpoint {
+
+	private static final int MAGIC = 0x4C52434B;			// "LRCK"
+	private static final int VERSION = 2;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private double elapsed;				// The time elapsed in the run, in seconds
+	private long seed;					// The seed of the random stream of the run from this point on
+	private RouteMap routePool;			// The multi-stops routes from which the subsets are sampled
+	private ElitePool collectedRoutes;	// The multi-stops routes collected by the last iteration and their scores (empty between two samplings)
+	private Solution bestSol;			// The best solution found so far (null if there is none)
+
+	/**
+	 * Create the state of a run
+	 * @param elapsed			the time elapsed in the run, in seconds
+	 * @param seed				the seed of the random stream of the run from this point on
+	 * @param routePool			the multi-stops routes from which the subsets are sampled
+	 * @param collectedRoutes	the multi-stops routes collected by the last iteration and their scores (null or empty between two samplings)
+	 * @param bestSol			the best solution found so far (null if there is none)
+	 */
+	public Checkpoint(double elapsed, long seed, RouteMap routePool, ElitePool collectedRoutes, Solution bestSol) {
+		this.elapsed = elapsed;
+		this.seed = seed;
+		this.routePool = routePool;
+		this.collectedRoutes = collectedRoutes;
+		this.bestSol = bestSol;
+	}
+
+	/*
+	 * ACCESSORS
+	 */
+	/**
+	 *
+	 * @return	the time elapsed in the run, in seconds
+	 */
+	public double getElapsed() {
+		return this.elapsed;
+	}
+
+	/**
+	 *
+	 * @return	the seed of the random stream of the run from this point on
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 *
+	 * @return	the multi-stops routes from which the subsets are sampled
+	 */
+	public RouteMap getRoutePool() {
+		return this.routePool;
+	}
+
+	/**
+	 *
+	 * @return	the multi-stops routes collected by the last iteration and their scores (empty between two samplings)
+	 */
+	public ElitePool getCollectedRoutes() {
+		return this.collectedRoutes;
+	}
+
+	/**
+	 *
+	 * @return	the best solution found so far, null if there is none
+	 */
+	public Solution getBestSol() {
+		return this.bestSol;
+	}
+
+	/*
+	 * METHODS
+	 */
+	/**
+	 * Read the checkpoint of a run
+	 * @param instLIRP	the instance solved by the run
+	 * @param fileName	the name of the file
+	 * @return			the state of the run, or null if the file does not exist or was created for another instance or other route parameters
+	 * @throws IOException
+	 */
+	public static Checkpoint read(Instance instLIRP, String fileName) throws IOException {
+		if(!new File(fileName).isFile())
+			return null;
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(fileName)));
+		try {
+			if(buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				System.out.println("The file " + fileName + " is not a checkpoint file.");
+				return null;
+			}
+			if(!RoutePoolFile.readHeader(buffer, instLIRP, true)) {
+				System.out.println("The checkpoint " + fileName + " does not correspond to the instance and route parameters, it is ignored.");
+				return null;
+			}
+			double elapsed = buffer.getDouble();
+			long seed = buffer.getLong();
+			RouteMap routePool = readRouteMap(buffer, instLIRP);
+			ElitePool collectedRoutes = readElitePool(buffer, instLIRP);
+			Solution bestSol = (buffer.get() != 0) ? readSolution(buffer, instLIRP) : null;
+			return new Checkpoint(elapsed, seed, routePool, collectedRoutes, bestSol);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			System.out.println("The checkpoint " + fileName + " is truncated or corrupted, it is ignored.");
+			return null;
+		}
+	}
+
+	/**
+	 * Write the checkpoint to a file, replacing the previous one only once it is complete
+	 * @param instLIRP	the instance solved by the run
+	 * @param fileName	the name of the file
+	 * @throws IOException
+	 */
+	public void write(Instance instLIRP, String fileName) throws IOException {
+		File tmpFile = new File(fileName + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE))) {
+			ByteBuffer header = ByteBuffer.allocate(BUFFER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			RoutePoolFile.writeHeader(header, instLIRP);
+			out.write(header.array(), 0, header.position());
+			out.writeDouble(this.elapsed);
+			out.writeLong(this.seed);
+			writeRouteMap(out, instLIRP, this.routePool);
+			writeElitePool(out, instLIRP, this.collectedRoutes);
+			out.writeBoolean(this.bestSol != null);
+			if(this.bestSol != null)
+				writeSolution(out, instLIRP, this.bestSol);
+		}
+		try {
+			Files.move(tmpFile.toPath(), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException amnse) {
+			Files.move(tmpFile.toPath(), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 * Write the routes of each level of a RouteMap object, preceded by their number
+	 * @param out		the stream to write to
+	 * @param instLIRP	the instance to which the routes apply
+	 * @param rMap		the routes to write (null for no route)
+	 * @throws IOException
+	 */
+	private static void writeRouteMap(DataOutputStream out, Instance instLIRP, RouteMap rMap) throws IOException {
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			RouteSet lvlRoutes = (rMap != null) ? rMap.get(lvl) : null;
+			out.writeInt((lvlRoutes != null) ? lvlRoutes.size() : 0);
+			if(lvlRoutes != null) {
+				for(Route route : lvlRoutes)
+					writeRoute(out, route);
+			}
+		}
+	}
+
+	/**
+	 * Read the routes of each level written by writeRouteMap
+	 * @param buffer	the buffer containing the routes
+	 * @param instLIRP	the instance to which the routes apply
+	 * @return			a new RouteMap object containing the routes of each level
+	 */
+	private static RouteMap readRouteMap(ByteBuffer buffer, Instance instLIRP) {
+		RouteMap rMap = new RouteMap();
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			RouteSet lvlRoutes = new RouteSet();
+			int nbRoutes = buffer.getInt();
+			for(int rIndex = 0; rIndex < nbRoutes; rIndex++)
+				lvlRoutes.add(readRoute(buffer, instLIRP, lvl));
+			rMap.put(lvl, lvlRoutes);
+		}
+		return rMap;
+	}
+
+	/**
+	 * Write the routes of each level of an ElitePool object with their score, preceded by their number
+	 * @param out		the stream to write to
+	 * @param instLIRP	the instance to which the routes apply
+	 * @param pool		the routes to write (null for no route)
+	 * @throws IOException
+	 */
+	private static void writeElitePool(DataOutputStream out, Instance instLIRP, ElitePool pool) throws IOException {
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			out.writeInt((pool != null) ? pool.size(lvl) : 0);
+			if(pool != null) {
+				for(Map.Entry<Route, Double> routeScore : pool.getScores(lvl).entrySet()) {
+					writeRoute(out, routeScore.getKey());
+					out.writeDouble(routeScore.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the routes of each level and their score written by writeElitePool, in the same order
+	 * @param buffer	the buffer containing the routes
+	 * @param instLIRP	the instance to which the routes apply
+	 * @return			a new ElitePool object containing the routes of each level with their score
+	 */
+	private static ElitePool readElitePool(ByteBuffer buffer, Instance instLIRP) {
+		ElitePool pool = new ElitePool(Config.ELITE_SIZE);
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			int nbRoutes = buffer.getInt();
+			for(int rIndex = 0; rIndex < nbRoutes; rIndex++) {
+				Route route = readRoute(buffer, instLIRP, lvl);
+				pool.add(lvl, route, buffer.getDouble());
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Write a route as its number of stops followed by the record of the route pool files
+	 * @param out	the stream to write to
+	 * @param route	the route to write
+	 * @throws IOException
+	 */
+	private static void writeRoute(DataOutputStream out, Route route) throws IOException {
+		out.writeInt(route.getStops().length);
+		out.writeInt(route.getStartIndex());
+		for(int stop : route.getStops())
+			out.writeInt(stop);
+		out.writeDouble(route.getTravelTime());
+		out.writeDouble(route.getCost());
+	}
+
+	/**
+	 * Read a route written by writeRoute
+	 * @param buffer	the buffer containing the route
+	 * @param instLIRP	the instance to which the route applies
+	 * @param lvl		the level served by the route
+	 * @return			the route read
+	 */
+	private static Route readRoute(ByteBuffer buffer, Instance instLIRP, int lvl) {
+		int nbStops = buffer.getInt();
+		int start = buffer.getInt();
+		int[] stops = new int[nbStops];
+		for(int stopPos = 0; stopPos < nbStops; stopPos++)
+			stops[stopPos] = buffer.getInt();
+		double travelTime = buffer.getDouble();
+		double cost = buffer.getDouble();
+		return new Route(instLIRP, lvl, start, stops, travelTime, cost);
+	}
+
+	/**
+	 * Write the depots opened, the inventory levels and the routes used in a solution, with the quantities they deliver
+	 * @param out		the stream to write to
+	 * @param instLIRP	the instance solved
+	 * @param sol		the solution to write
+	 * @throws IOException
+	 */
+	private static void writeSolution(DataOutputStream out, Instance instLIRP, Solution sol) throws IOException {
+		int nbPeriods = instLIRP.getNbPeriods();
+		out.writeDouble(sol.getLB());
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			if(lvl < instLIRP.getNbLevels() - 1) {
+				for(int d = 0; d < instLIRP.getNbDepots(lvl); d++)
+					out.writeBoolean(sol.isOpenDepot(lvl, d));
+			}
+			for(int loc = 0; loc < instLIRP.getNbLocations(lvl); loc++) {
+				for(int t = 0; t < nbPeriods; t++)
+					out.writeDouble(sol.getInvLoc(lvl, loc, t));
+			}
+			/* Only the routes used in some period are kept */
+			ArrayList<Integer> usedIndices = new ArrayList<Integer>();
+			for(int r = 0; r < sol.getNbRoutes(lvl); r++) {
+				boolean isUsed = false;
+				for(int t = 0; !isUsed && t < nbPeriods; t++)
+					isUsed = sol.isUsedRoute(lvl, r, t);
+				if(isUsed)
+					usedIndices.add(r);
+			}
+			out.writeInt(usedIndices.size());
+			for(int r : usedIndices) {
+				Route route = sol.getRoute(lvl, r);
+				writeRoute(out, route);
+				for(int t = 0; t < nbPeriods; t++) {
+					out.writeBoolean(sol.isUsedRoute(lvl, r, t));
+					for(int stop : route.getStops())
+						out.writeDouble(sol.getQuantityDelivered(lvl, stop, r, t));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a solution written by writeSolution and compute its objective value
+	 * @param buffer	the buffer containing the solution
+	 * @param instLIRP	the instance solved
+	 * @return			the solution read
+	 */
+	private static Solution readSolution(ByteBuffer buffer, Instance instLIRP) {
+		int nbPeriods = instLIRP.getNbPeriods();
+		double lb = buffer.getDouble();
+		/* The routes of the solution are only known once its depots and inventories are read */
+		boolean[][] openDepots = new boolean[instLIRP.getNbLevels() - 1][];
+		double[][][] invLoc = new double[instLIRP.getNbLevels()][][];
+		Route[][] routes = new Route[instLIRP.getNbLevels()][];
+		boolean[][][] usedRoutes = new boolean[instLIRP.getNbLevels()][][];
+		double[][][][] quantities = new double[instLIRP.getNbLevels()][][][];
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			if(lvl < instLIRP.getNbLevels() - 1) {
+				openDepots[lvl] = new boolean[instLIRP.getNbDepots(lvl)];
+				for(int d = 0; d < openDepots[lvl].length; d++)
+					openDepots[lvl][d] = buffer.get() != 0;
+			}
+			invLoc[lvl] = new double[instLIRP.getNbLocations(lvl)][nbPeriods];
+			for(int loc = 0; loc < invLoc[lvl].length; loc++) {
+				for(int t = 0; t < nbPeriods; t++)
+					invLoc[lvl][loc][t] = buffer.getDouble();
+			}
+			int nbUsed = buffer.getInt();
+			routes[lvl] = new Route[nbUsed];
+			usedRoutes[lvl] = new boolean[nbUsed][nbPeriods];
+			quantities[lvl] = new double[nbUsed][nbPeriods][];
+			for(int r = 0; r < nbUsed; r++) {
+				routes[lvl][r] = readRoute(buffer, instLIRP, lvl);
+				for(int t = 0; t < nbPeriods; t++) {
+					usedRoutes[lvl][r][t] = buffer.get() != 0;
+					quantities[lvl][r][t] = new double[routes[lvl][r].getStops().length];
+					for(int stopPos = 0; stopPos < quantities[lvl][r][t].length; stopPos++)
+						quantities[lvl][r][t][stopPos] = buffer.getDouble();
+				}
+			}
+		}
+
+		Solution sol = new Solution(instLIRP, routes);
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			if(lvl < instLIRP.getNbLevels() - 1) {
+				for(int d = 0; d < openDepots[lvl].length; d++)
+					sol.setOpenDepot(lvl, d, openDepots[lvl][d]);
+			}
+			for(int loc = 0; loc < invLoc[lvl].length; loc++) {
+				for(int t = 0; t < nbPeriods; t++)
+					sol.setInvLoc(lvl, loc, t, invLoc[lvl][loc][t]);
+			}
+			for(int r = 0; r < routes[lvl].length; r++) {
+				int[] stops = routes[lvl][r].getStops();
+				for(int t = 0; t < nbPeriods; t++) {
+					sol.setUsedRoute(lvl, r, t, usedRoutes[lvl][r][t]);
+					for(int stopPos = 0; stopPos < stops.length; stopPos++)
+						sol.setDeliveryLocation(lvl, stops[stopPos], r, t, quantities[lvl][r][t][stopPos]);
+				}
+			}
+		}
+		sol.setLB(lb);
+		sol.computeObjValue();
+		return sol;
+	}
+}
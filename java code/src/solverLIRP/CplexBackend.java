@@ -0,0 +1,417 @@
+package solverLIRP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import ilog.concert.IloConversion;
+import ilog.concert.IloException;
+import ilog.concert.IloLPMatrix;
+import ilog.concert.IloLinearNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.concert.IloNumVarType;
+import ilog.cplex.IloCplex;
+import ilog.cplex.IloCplex.DoubleParam;
+
+/**
+ * Implementation of MIPBackend on IBM ILOG CPLEX
+ * @author gmas
+ *
+ */
+public class CplexBackend implements MIPBackend {
+
+	private IloCplex cplex;
+	private IloLPMatrix lp;							// The matrix of the batches of constraints, whose columns are the variables in the order of their index
+	private IloNumVar[] vars = new IloNumVar[64];	// The variables of the model, by index
+	private int nbVars;								// The number of variables of the model
+	private ArrayList<IloConversion> mipConversion = new ArrayList<IloConversion>();	// Conversions of the relaxed variables
+	private Trajectory trajectory;					// The trajectory recorded by the informational callback (null if there is none)
+	private boolean hasCallback;					// States if the informational callback is registered
+	private CutSeparator separator;					// The separation routine called by the user cut callback (null if there is none)
+	private boolean hasCutCallback;					// States if the user cut callback is registered
+
+	/**
+	 * Create a CPLEX solver with an empty model
+	 * @throws MIPException
+	 */
+	public CplexBackend() throws MIPException {
+		try {
+			this.cplex = new IloCplex();
+			this.lp = this.cplex.addLPMatrix();
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	/*
+	 * MODEL
+	 */
+	@Override
+	public int addBoolVars(int nbVars) throws MIPException {
+		try {
+			return this.store(this.cplex.boolVarArray(nbVars));
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public int addIntVars(int nbVars, int lb, int ub) throws MIPException {
+		try {
+			return this.store(this.cplex.intVarArray(nbVars, lb, ub));
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public int addNumVars(int nbVars, double lb, double ub) throws MIPException {
+		try {
+			return this.store(this.cplex.numVarArray(nbVars, lb, ub));
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void addLe(LinearExpr lhs, double rhs) throws MIPException {
+		try {
+			this.cplex.addLe(this.toCplex(lhs), rhs);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void addEq(LinearExpr lhs, double rhs) throws MIPException {
+		try {
+			this.cplex.addEq(this.toCplex(lhs), rhs);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void addRows(RowBatch batch) throws MIPException {
+		try {
+			double[] lb = new double[batch.getNbRows()];
+			double[] ub = new double[batch.getNbRows()];
+			int[][] ind = new int[batch.getNbRows()][];
+			double[][] val = new double[batch.getNbRows()][];
+			for(int row = 0; row < batch.getNbRows(); row++) {
+				lb[row] = batch.isEq(row) ? batch.getRhs(row) : -Double.MAX_VALUE;
+				ub[row] = batch.getRhs(row);
+				int rowLength = batch.getRowEnd(row) - batch.getRowStart(row);
+				ind[row] = new int[rowLength];
+				val[row] = new double[rowLength];
+				for(int term = 0; term < rowLength; term++) {
+					ind[row][term] = batch.getVar(batch.getRowStart(row) + term);
+					val[row][term] = batch.getCoef(batch.getRowStart(row) + term);
+				}
+			}
+			this.lp.addRows(lb, ub, ind, val);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void minimize(LinearExpr obj) throws MIPException {
+		try {
+			this.cplex.addMinimize(this.toCplex(obj));
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void setUB(int var, double ub) throws MIPException {
+		try {
+			this.vars[var].setUB(ub);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void relax(int[] relaxedVars) throws MIPException {
+		try {
+			IloNumVar[] cplexVars = new IloNumVar[relaxedVars.length];
+			for(int varIndex = 0; varIndex < relaxedVars.length; varIndex++)
+				cplexVars[varIndex] = this.vars[relaxedVars[varIndex]];
+			this.mipConversion.add(this.cplex.conversion(cplexVars, IloNumVarType.Float));
+			this.cplex.add(this.mipConversion.get(this.mipConversion.size() - 1));
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void unrelax() throws MIPException {
+		try {
+			for(IloConversion conv : this.mipConversion)
+				this.cplex.remove(conv);
+			this.mipConversion.clear();
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void setMIPStart(int[] startVars, double[] values) throws MIPException {
+		try {
+			if(this.cplex.getNMIPStarts() > 0)
+				this.cplex.deleteMIPStarts(0, this.cplex.getNMIPStarts());
+			if(startVars == null)
+				return;
+			IloNumVar[] cplexVars = new IloNumVar[startVars.length];
+			for(int varIndex = 0; varIndex < startVars.length; varIndex++)
+				cplexVars[varIndex] = this.vars[startVars[varIndex]];
+			this.cplex.addMIPStart(cplexVars, values, IloCplex.MIPStartEffort.Repair);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	/*
+	 * PARAMETERS
+	 */
+	@Override
+	public void setTimeLimit(double timeLimit) throws MIPException {
+		try {
+			this.cplex.setParam(DoubleParam.TiLim, timeLimit);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void setThreads(int nbThreads) throws MIPException {
+		try {
+			this.cplex.setParam(IloCplex.IntParam.Threads, nbThreads);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void setTrajectory(Trajectory trajectory) throws MIPException {
+		try {
+			this.trajectory = trajectory;
+			if(trajectory != null && !this.hasCallback) {
+				this.cplex.use(new TrajectoryCallback());
+				this.hasCallback = true;
+			}
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public void setCutSeparator(CutSeparator separator) throws MIPException {
+		try {
+			this.separator = separator;
+			if(separator != null && !this.hasCutCallback) {
+				this.cplex.use(new SeparationCallback());
+				this.hasCutCallback = true;
+			}
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	/*
+	 * RESOLUTION
+	 */
+	@Override
+	public boolean solve() throws MIPException {
+		try {
+			return this.cplex.solve();
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public String getStatus() throws MIPException {
+		try {
+			return this.cplex.getStatus().toString();
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public boolean isInfeasible() throws MIPException {
+		try {
+			return this.cplex.getStatus().equals(IloCplex.Status.Infeasible);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public double getObjValue() throws MIPException {
+		try {
+			return this.cplex.getObjValue();
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public double getBestObjValue() throws MIPException {
+		try {
+			return this.cplex.getBestObjValue();
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public double getValue(int var) throws MIPException {
+		try {
+			return this.cplex.getValue(this.vars[var]);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public double[] getValues(int first, int nbValues) throws MIPException {
+		try {
+			return this.cplex.getValues(this.lp, first, nbValues);
+		}
+		catch (IloException iloe) {
+			throw wrap(iloe);
+		}
+	}
+
+	@Override
+	public int getNbVars() {
+		return this.nbVars;
+	}
+
+	@Override
+	public void clear() {
+		try {
+			this.cplex.getParameterSet().clear();
+			this.cplex.clearCallbacks();
+			this.cplex.clearModel();
+			this.lp = this.cplex.addLPMatrix();
+		} catch (IloException e) {
+			System.out.println("Exception clearing model: " + e.getMessage());
+			this.cplex.end();
+		}
+		this.vars = new IloNumVar[64];
+		this.nbVars = 0;
+		this.mipConversion.clear();
+		this.trajectory = null;
+		this.hasCallback = false;
+		this.separator = null;
+		this.hasCutCallback = false;
+	}
+
+	@Override
+	public void end() {
+		this.cplex.end();
+	}
+
+	/**
+	 * Informational callback called by CPLEX during the branch-and-bound, which records the incumbent and the bound in the trajectory
+	 */
+	private class TrajectoryCallback extends IloCplex.MIPInfoCallback {
+		@Override
+		protected void main() throws IloException {
+			Trajectory current = CplexBackend.this.trajectory;
+			if(current != null)
+				current.record(this.hasIncumbent() ? this.getIncumbentObjValue() : Double.NaN, this.getBestObjValue());
+		}
+	}
+
+	/**
+	 * User cut callback called by CPLEX on the solutions of the relaxations, which adds the violated inequalities found by the separator
+	 */
+	private class SeparationCallback extends IloCplex.UserCutCallback {
+		@Override
+		protected void main() throws IloException {
+			CutSeparator current = CplexBackend.this.separator;
+			if(current == null || this.isAfterCutLoop())
+				return;
+			/* The callback may be called by several threads at the same time, the batch is local to each call */
+			RowBatch cuts = new RowBatch();
+			current.separate(this.getValues(CplexBackend.this.vars, 0, CplexBackend.this.nbVars), cuts);
+			for(int row = 0; row < cuts.getNbRows(); row++) {
+				IloLinearNumExpr lhs = CplexBackend.this.cplex.linearNumExpr();
+				for(int term = cuts.getRowStart(row); term < cuts.getRowEnd(row); term++)
+					lhs.addTerm(cuts.getCoef(term), CplexBackend.this.vars[cuts.getVar(term)]);
+				if(cuts.isEq(row))
+					this.add(CplexBackend.this.cplex.eq(lhs, cuts.getRhs(row)), IloCplex.CutManagement.UseCutPurge);
+				else
+					this.add(CplexBackend.this.cplex.le(lhs, cuts.getRhs(row)), IloCplex.CutManagement.UseCutPurge);
+			}
+		}
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 * Store new variables after the existing ones, and add them as the next columns of the matrix of the constraints
+	 * @param newVars	the variables created
+	 * @return			the index of the first new variable
+	 * @throws IloException
+	 */
+	private int store(IloNumVar[] newVars) throws IloException {
+		this.lp.addCols(newVars);
+		int first = this.nbVars;
+		if(this.nbVars + newVars.length > this.vars.length)
+			this.vars = Arrays.copyOf(this.vars, Math.max(2 * this.vars.length, this.nbVars + newVars.length));
+		System.arraycopy(newVars, 0, this.vars, this.nbVars, newVars.length);
+		this.nbVars += newVars.length;
+		return first;
+	}
+
+	/**
+	 *
+	 * @param expr	a linear expression on the variables of the model
+	 * @return		the corresponding CPLEX expression
+	 * @throws IloException
+	 */
+	private IloLinearNumExpr toCplex(LinearExpr expr) throws IloException {
+		IloLinearNumExpr cplexExpr = this.cplex.linearNumExpr();
+		for(int term = 0; term < expr.getNbTerms(); term++)
+			cplexExpr.addTerm(expr.getCoef(term), this.vars[expr.getVar(term)]);
+		return cplexExpr;
+	}
+
+	/**
+	 *
+	 * @param iloe	an exception thrown by CPLEX
+	 * @return		the corresponding exception of the backend
+	 */
+	private static MIPException wrap(IloException iloe) {
+		return new MIPException("CPLEX error: " + iloe.getMessage(), iloe);
+	}
+}
@@ -0,0 +1,17 @@
+package solverLIRP;
+
+/**
+ * Separation routine of valid inequalities, called by a MIPBackend object on the solutions of the relaxations of its model.
+ * The inequalities must be valid for the whole model (whatever the bounds of the variables in the current node).
+ * @author gmas
+ *
+ */
+public interface CutSeparator {
+
+	/**
+	 * Find inequalities violated by a solution of the relaxation
+	 * @param values	the value of each variable of the model, by index
+	 * @param cuts		the batch in which the violated inequalities are added
+	 */
+	void separate(double[] values, RowBatch cuts);
+}
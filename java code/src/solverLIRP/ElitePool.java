@@ -0,0 +1,187 @@
+package solverLIRP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Pool of the multi-stops routes used in the solutions of the route sampling, with a score for each route. The score of a
+ * route grows with the number of solutions in which it appears and with the quality of these solutions. The pool keeps at
+ * most a given number of routes at each level: when it is full, the routes with the lowest scores are evicted.
+ * @author gmas
+ *
+ */
+public class ElitePool {
+
+	private int capacity;										// The maximum number of routes kept at each level (0: no limit)
+	private HashMap<Integer, LinkedHashMap<Route, Double>> scores;	// The score of each route of each level, in the order in which the routes entered the pool
+
+	/**
+	 * Create an empty pool
+	 * @param capacity	the maximum number of routes kept at each level (0: no limit)
+	 */
+	public ElitePool(int capacity) {
+		this.capacity = capacity;
+		this.scores = new HashMap<Integer, LinkedHashMap<Route, Double>>();
+	}
+
+	/**
+	 * Add the routes of a solution to the pool, or raise their score if they are already in it
+	 * @param routes	the routes of the solution at each level
+	 * @param weight	the score added to each route, greater for better solutions (0 to add the routes without scoring them)
+	 */
+	public void record(RouteMap routes, double weight) {
+		for(int lvl : routes.keySet()) {
+			LinkedHashMap<Route, Double> lvlScores = this.getLvlScores(lvl);
+			for(Route r : routes.get(lvl))
+				lvlScores.merge(r, weight, Double::sum);
+			this.evict(lvl);
+		}
+	}
+
+	/**
+	 * Add a route to the pool with a given score, or raise its score if it is already in it
+	 * @param lvl	the level of the route
+	 * @param r		the route to add
+	 * @param score	the score added to the route
+	 */
+	public void add(int lvl, Route r, double score) {
+		this.getLvlScores(lvl).merge(r, score, Double::sum);
+		this.evict(lvl);
+	}
+
+	/**
+	 * Add the routes of another pool and their scores to this pool
+	 * @param other	the pool to merge into this one (left unchanged)
+	 */
+	public void merge(ElitePool other) {
+		for(int lvl : other.scores.keySet()) {
+			LinkedHashMap<Route, Double> lvlScores = this.getLvlScores(lvl);
+			for(Map.Entry<Route, Double> routeScore : other.scores.get(lvl).entrySet())
+				lvlScores.merge(routeScore.getKey(), routeScore.getValue(), Double::sum);
+			this.evict(lvl);
+		}
+	}
+
+	/**
+	 *
+	 * @param lvl	the level of interest
+	 * @return		the number of routes of the level in the pool
+	 */
+	public int size(int lvl) {
+		return (this.scores.get(lvl) != null) ? this.scores.get(lvl).size() : 0;
+	}
+
+	/**
+	 *
+	 * @param lvl	the level of interest
+	 * @return		a new RouteSet object containing the routes of the level in the pool
+	 */
+	public RouteSet getRoutes(int lvl) {
+		RouteSet lvlRoutes = new RouteSet();
+		if(this.scores.get(lvl) != null)
+			lvlRoutes.addAll(this.scores.get(lvl).keySet());
+		return lvlRoutes;
+	}
+
+	/**
+	 *
+	 * @param lvl	the level of interest
+	 * @return		a read-only view of the score of each route of the level, in the order in which the routes entered the pool
+	 */
+	public Map<Route, Double> getScores(int lvl) {
+		return (this.scores.get(lvl) != null) ? Collections.unmodifiableMap(this.scores.get(lvl)) : Collections.<Route, Double>emptyMap();
+	}
+
+	/**
+	 *
+	 * @return	a new RouteMap object containing the routes of each level in the pool
+	 */
+	public RouteMap getRouteMap() {
+		RouteMap rMap = new RouteMap();
+		for(int lvl : this.scores.keySet())
+			rMap.put(lvl, this.getRoutes(lvl));
+		return rMap;
+	}
+
+	/**
+	 * Draw subsets of the routes of a level, the routes with the highest scores being the most likely to be selected. There
+	 * are as many subsets as needed to hold all the routes of the level, but each subset is drawn independently: the best
+	 * routes may belong to several subsets and the worst ones to none.
+	 * @param lvl			the level of interest
+	 * @param subsetSizes	the size of the subsets
+	 * @param rnd			the random stream used to draw the subsets
+	 * @return				the subsets of routes drawn
+	 */
+	public HashSet<RouteSet> sample(int lvl, int subsetSizes, SplittableRandom rnd) {
+		HashSet<RouteSet> rSubsets = new HashSet<RouteSet>();
+		ArrayList<Route> lvlRoutes = new ArrayList<Route>();
+		ArrayList<Double> lvlScores = new ArrayList<Double>();
+		if(this.scores.get(lvl) != null) {
+			for(Map.Entry<Route, Double> routeScore : this.scores.get(lvl).entrySet()) {
+				lvlRoutes.add(routeScore.getKey());
+				lvlScores.add(routeScore.getValue());
+			}
+		}
+		int nbSubsets = (int) Math.ceil(((double) lvlRoutes.size()) / subsetSizes);
+		/* If there is only one subset, it contains all the routes of the level */
+		if(nbSubsets < 2) {
+			rSubsets.add(this.getRoutes(lvl));
+			return rSubsets;
+		}
+
+		/* Each subset keeps the routes with the largest keys log(u)/score (weighted sampling without replacement),
+		 * the routes without score have a key of -infinity and are only selected to complete a subset */
+		Integer[] order = new Integer[lvlRoutes.size()];
+		double[] keys = new double[lvlRoutes.size()];
+		for(int subset = 0; subset < nbSubsets; subset++) {
+			for(int rIndex = 0; rIndex < keys.length; rIndex++) {
+				order[rIndex] = rIndex;
+				keys[rIndex] = Math.log(rnd.nextDouble()) / lvlScores.get(rIndex);
+			}
+			Arrays.sort(order, (r1, r2) -> Double.compare(keys[r2], keys[r1]));
+			RouteSet rSubset = new RouteSet();
+			for(int rPos = 0; rPos < subsetSizes; rPos++)
+				rSubset.add(lvlRoutes.get(order[rPos]));
+			rSubsets.add(rSubset);
+		}
+		return rSubsets;
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 *
+	 * @param lvl	the level of interest
+	 * @return		the scores of the routes of the level, created empty if the pool has no route at this level
+	 */
+	private LinkedHashMap<Route, Double> getLvlScores(int lvl) {
+		if(this.scores.get(lvl) == null)
+			this.scores.put(lvl, new LinkedHashMap<Route, Double>());
+		return this.scores.get(lvl);
+	}
+
+	/**
+	 * Remove the routes of a level with the lowest scores until the level holds at most capacity routes (the oldest routes are
+	 * removed first among those with the same score)
+	 * @param lvl	the level of interest
+	 */
+	private void evict(int lvl) {
+		LinkedHashMap<Route, Double> lvlScores = this.scores.get(lvl);
+		if(this.capacity < 1 || lvlScores.size() <= this.capacity)
+			return;
+		ArrayList<Map.Entry<Route, Double>> sortedScores = new ArrayList<Map.Entry<Route, Double>>(lvlScores.entrySet());
+		sortedScores.sort(Map.Entry.comparingByValue());
+		ArrayList<Route> evicted = new ArrayList<Route>();
+		for(int rPos = 0; rPos < lvlScores.size() - this.capacity; rPos++)
+			evicted.add(sortedScores.get(rPos).getKey());
+		for(Route r : evicted)
+			lvlScores.remove(r);
+	}
+}
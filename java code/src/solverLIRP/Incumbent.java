@@ -0,0 +1,72 @@
+package solverLIRP;
+
+/**
+ * Best solution found so far during a resolution, offered as a starting point to the next solves. The same object may be
+ * shared by several trajectories of the route sampling running at once, which publish their improvements to it and stop
+ * when it is closed.
+ * @author gmas
+ *
+ */
+public class Incumbent {
+
+	private Solution bestSol;								// The best solution found so far (null if there is none)
+	private double lowerBound = Double.NEGATIVE_INFINITY;	// The best lower bound known on the whole problem
+	private volatile boolean stopped;						// States if the resolutions sharing the incumbent must stop
+
+	/**
+	 *
+	 * @return	the best solution found so far, null if there is none
+	 */
+	public synchronized Solution get() {
+		return this.bestSol;
+	}
+
+	/**
+	 * Replace the best solution if a new one has a lower objective value
+	 * @param sol	a feasible solution whose objective value has been computed
+	 * @return		true if sol becomes the best solution
+	 */
+	public synchronized boolean update(Solution sol) {
+		if(sol == null || sol.getObjVal() < 0)
+			return false;
+		if(this.bestSol == null || sol.getObjVal() < this.bestSol.getObjVal()) {
+			this.bestSol = sol;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Raise the lower bound known on the whole problem
+	 * @param lb	a valid lower bound on the objective value of the problem
+	 */
+	public synchronized void updateLowerBound(double lb) {
+		this.lowerBound = Math.max(this.lowerBound, lb);
+	}
+
+	/**
+	 *
+	 * @return	the relative gap between the best solution and the lower bound (Double.POSITIVE_INFINITY if one of them is unknown)
+	 */
+	public synchronized double getGap() {
+		if(this.bestSol == null || Double.isInfinite(this.lowerBound) || this.bestSol.getObjVal() <= 0)
+			return Double.POSITIVE_INFINITY;
+		return (this.bestSol.getObjVal() - this.lowerBound) / this.bestSol.getObjVal();
+	}
+
+	/**
+	 * Ask the resolutions sharing the incumbent to stop as soon as possible
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	/**
+	 *
+	 * @param gapTarget	the relative gap at which the resolution can stop (0 to run until the time limit)
+	 * @return			true if the resolutions were asked to stop or if the gap of the best solution is below the target
+	 */
+	public boolean isClosed(double gapTarget) {
+		return this.stopped || (gapTarget > 0 && this.getGap() <= gapTarget);
+	}
+}
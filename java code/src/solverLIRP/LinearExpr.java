@@ -0,0 +1,59 @@
+package solverLIRP;
+
+import java.util.Arrays;
+
+/**
+ * Linear expression on the variables of a MIPBackend object, stored as a list of terms (coefficient, index of the variable).
+ * A variable may appear in several terms, its coefficients are then summed.
+ * @author gmas
+ *
+ */
+public class LinearExpr {
+
+	private int[] vars = new int[8];			// The index of the variable of each term
+	private double[] coefs = new double[8];		// The coefficient of each term
+	private int nbTerms;						// The number of terms of the expression
+
+	/**
+	 * Add a term to the expression
+	 * @param coef	the coefficient of the variable
+	 * @param var	the index of the variable
+	 * @return		the expression
+	 */
+	public LinearExpr addTerm(double coef, int var) {
+		if(this.nbTerms == this.vars.length) {
+			this.vars = Arrays.copyOf(this.vars, 2 * this.nbTerms);
+			this.coefs = Arrays.copyOf(this.coefs, 2 * this.nbTerms);
+		}
+		this.vars[this.nbTerms] = var;
+		this.coefs[this.nbTerms] = coef;
+		this.nbTerms++;
+		return this;
+	}
+
+	/**
+	 *
+	 * @return	the number of terms of the expression
+	 */
+	public int getNbTerms() {
+		return this.nbTerms;
+	}
+
+	/**
+	 *
+	 * @param term	the position of the term in the expression
+	 * @return		the index of the variable of the term
+	 */
+	public int getVar(int term) {
+		return this.vars[term];
+	}
+
+	/**
+	 *
+	 * @param term	the position of the term in the expression
+	 * @return		the coefficient of the term
+	 */
+	public double getCoef(int term) {
+		return this.coefs[term];
+	}
+}
@@ -7,12 +7,14 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.SplittableRandom;
 import java.util.TreeSet;
 
 import instanceManager.Instance;
 import instanceManager.Location;
 import tools.Config;
 import tools.Pair;
+import tools.RandomStreams;
 
 
 public class LocManager {
@@ -28,6 +30,8 @@ public class LocManager {
 	 =======================*/
 	private Instance instLIRP;
 	private HashMap<Location, HashSet<Location>> alloc;
+	private HashMap<Location, Integer> nodes;				// Index of each location of the instance in its travel times matrix
+	private SplittableRandom rnd;							// The random stream used to select the depots when no stream is given
 
 	/*======================
 	 *      CONSTRUCTOR 
@@ -40,6 +44,17 @@ public class LocManager {
 	public LocManager(Instance instLIRP) throws IOException {
 		this.instLIRP = instLIRP;
 		this.alloc = new HashMap<Location, HashSet<Location>>();
+		this.rnd = RandomStreams.get("locations");
+
+		/* Map every location to its index in the travel times matrix of the instance */
+		this.nodes = new HashMap<Location, Integer>();
+		this.nodes.put(this.instLIRP.getSupplier(), this.instLIRP.getNodeIndex(-1, 0));
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			for(int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++) {
+				Location currentLoc = (lvl < this.instLIRP.getNbLevels() - 1) ? (Location) this.instLIRP.getDepot(lvl, loc) : (Location) this.instLIRP.getClient(loc);
+				this.nodes.put(currentLoc, this.instLIRP.getNodeIndex(lvl, loc));
+			}
+		}
 	}
 
 	/**
@@ -86,7 +101,7 @@ public class LocManager {
 					/* If the current location is already assigned to at least one depot and 
 					 * the distance between the current location and the upper depot is greater than mu1, 
 					 * stop here (because all other depots will be further */
-					if (closest > 0 && currentLoc.getDistance(dcUp) / Config.AVG_SPEED > mu1) {
+					if (closest > 0 && this.getTravelTime(currentLoc, dcUp) > mu1) {
 						closest = k;
 					}
 					else {
@@ -128,14 +143,14 @@ public class LocManager {
 				boolean tooFar = false;
 				while(!tooFar && iterLvl.hasNext()){
 					Location interLoc = iterLvl.next();
-					double distLvl = currentLoc.getDistance(interLoc);
+					double distLvl = this.getDistance(currentLoc, interLoc);
 					if(distLvl > mu2) {
 						tooFar = true;
 					}
 					else {
 						for(Location dcUp : this.alloc.keySet()) {
 							if(!this.alloc.get(dcUp).contains(currentLoc) && this.alloc.get(dcUp).contains(interLoc)) {
-								if(distLvl + currentLoc.getDistance(dcUp) + interLoc.getDistance(dcUp) < mu3) {
+								if(distLvl + this.getDistance(currentLoc, dcUp) + this.getDistance(interLoc, dcUp) < mu3) {
 									this.alloc.get(dcUp).add(currentLoc);
 								}
 							}
@@ -148,11 +163,12 @@ public class LocManager {
 
 	/**
 	 * 
-	 * @param p	Number of depots to select
-	 * @return	A HashMap linking a subset of the depots to close locations of the next layer that are affected to them
+	 * @param p		Number of depots to select
+	 * @param rnd	The random stream used to select the depots (a SplittableRandom object is not thread-safe, each thread must use its own stream)
+	 * @return		A HashMap linking a subset of the depots to close locations of the next layer that are affected to them
 	 * @throws IOException
 	 */
-	public HashMap<Location, HashSet<Location>> assignLocations(int p) throws IOException {
+	public HashMap<Location, HashSet<Location>> assignLocations(int p, SplittableRandom rnd) throws IOException {
 		if(this.alloc.isEmpty()) {
 			this.init();
 		}
@@ -187,7 +203,7 @@ public class LocManager {
 				 * Depots object that still have unassigned successors 
 				 * (i.e. that haven't been selected yet)
 				 */
-				double proportion = Math.pow(Config.RAND.nextDouble(), beta) * sortedDC.size();
+				double proportion = Math.pow(rnd.nextDouble(), beta) * sortedDC.size();
 				while (position <  Math.floor(proportion)) 
 					position++; 
 
@@ -220,9 +236,9 @@ public class LocManager {
 	 * @param p	maximum number of depots to select from the instance
 	 * @return	A set of depots selected randomly according to how many locations their can serve
 	 */
-	public HashSet<Location> depotSelect(int p) {
+	public synchronized HashSet<Location> depotSelect(int p) {
 		try {
-			return new HashSet<Location>(this.assignLocations(p).keySet());
+			return new HashSet<Location>(this.assignLocations(p, this.rnd).keySet());
 		}
 		catch (IOException ioe) {
 			System.out.println("Exception met while assigning depots");
@@ -230,6 +246,26 @@ public class LocManager {
 		return new HashSet<Location>();
 	}
 
+	/**
+	 * Get the travel time between two locations of the instance from its travel times matrix
+	 * @param loc1	the origin location
+	 * @param loc2	the destination location
+	 * @return		the time to travel from loc1 to loc2
+	 */
+	private double getTravelTime(Location loc1, Location loc2) {
+		return this.instLIRP.getTravelTime(this.nodes.get(loc1), this.nodes.get(loc2));
+	}
+
+	/**
+	 * Get the distance between two locations of the instance from its travel times matrix
+	 * @param loc1	the origin location
+	 * @param loc2	the destination location
+	 * @return		the distance between loc1 and loc2
+	 */
+	private double getDistance(Location loc1, Location loc2) {
+		return this.getTravelTime(loc1, loc2) * Config.AVG_SPEED;
+	}
+
 	/**
 	 * Create a TreeSet of locations that are ordered according to their respective distance to a reference location
 	 * @param ref	The reference location that is used to sort the elements of the set
@@ -239,10 +275,10 @@ public class LocManager {
 		TreeSet<Location> tSet = new TreeSet<Location>(new Comparator<Location>() {
 			@Override
 			public int compare(Location loc1, Location loc2) {
-				if (ref.getDistance(loc1) < ref.getDistance(loc2)) {
+				if (getTravelTime(ref, loc1) < getTravelTime(ref, loc2)) {
 					return -1;
 				} 
-				else if (ref.getDistance(loc1) > ref.getDistance(loc2)) {
+				else if (getTravelTime(ref, loc1) > getTravelTime(ref, loc2)) {
 					return 1; 
 				} 
 				else return 0;
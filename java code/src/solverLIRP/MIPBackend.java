@@ -0,0 +1,233 @@
+package solverLIRP;
+
+import java.lang.reflect.InvocationTargetException;
+
+import tools.Config;
+
+/**
+ * Operations of a mixed integer linear programming solver used to build and solve the LIRP model. The variables are identified
+ * by their index, in the order in which they are created. The objective is always minimized.
+ * @author gmas
+ *
+ */
+public interface MIPBackend {
+
+	/*
+	 * MODEL
+	 */
+	/**
+	 * Create binary variables
+	 * @param nbVars	the number of variables to create
+	 * @return			the index of the first variable created (the others follow)
+	 * @throws MIPException
+	 */
+	int addBoolVars(int nbVars) throws MIPException;
+
+	/**
+	 * Create integer variables
+	 * @param nbVars	the number of variables to create
+	 * @param lb		the lower bound of the variables
+	 * @param ub		the upper bound of the variables
+	 * @return			the index of the first variable created (the others follow)
+	 * @throws MIPException
+	 */
+	int addIntVars(int nbVars, int lb, int ub) throws MIPException;
+
+	/**
+	 * Create continuous variables
+	 * @param nbVars	the number of variables to create
+	 * @param lb		the lower bound of the variables
+	 * @param ub		the upper bound of the variables
+	 * @return			the index of the first variable created (the others follow)
+	 * @throws MIPException
+	 */
+	int addNumVars(int nbVars, double lb, double ub) throws MIPException;
+
+	/**
+	 * Add the constraint lhs <= rhs
+	 * @param lhs	the linear expression of the left-hand side
+	 * @param rhs	the right-hand side
+	 * @throws MIPException
+	 */
+	void addLe(LinearExpr lhs, double rhs) throws MIPException;
+
+	/**
+	 * Add the constraint lhs = rhs
+	 * @param lhs	the linear expression of the left-hand side
+	 * @param rhs	the right-hand side
+	 * @throws MIPException
+	 */
+	void addEq(LinearExpr lhs, double rhs) throws MIPException;
+
+	/**
+	 * Add all the constraints of a batch at once
+	 * @param batch	the constraints to add
+	 * @throws MIPException
+	 */
+	void addRows(RowBatch batch) throws MIPException;
+
+	/**
+	 * Set the objective of the model
+	 * @param obj	the linear expression to minimize
+	 * @throws MIPException
+	 */
+	void minimize(LinearExpr obj) throws MIPException;
+
+	/**
+	 * Change the upper bound of a variable
+	 * @param var	the index of the variable
+	 * @param ub	the new upper bound
+	 * @throws MIPException
+	 */
+	void setUB(int var, double ub) throws MIPException;
+
+	/**
+	 * Relax the integrality of variables until unrelax is called
+	 * @param vars	the indices of the variables to relax
+	 * @throws MIPException
+	 */
+	void relax(int[] vars) throws MIPException;
+
+	/**
+	 * Restore the integrality of all the relaxed variables
+	 * @throws MIPException
+	 */
+	void unrelax() throws MIPException;
+
+	/**
+	 * Set the starting point of the next resolution, replacing the previous one. The start may be partial or infeasible, it is then repaired.
+	 * @param vars		the indices of the variables whose value is given (null to remove the starting point)
+	 * @param values	the value of each variable of vars
+	 * @throws MIPException
+	 */
+	void setMIPStart(int[] vars, double[] values) throws MIPException;
+
+	/*
+	 * PARAMETERS
+	 */
+	/**
+	 * Set the time limit of the next resolutions
+	 * @param timeLimit	the time limit, in seconds
+	 * @throws MIPException
+	 */
+	void setTimeLimit(double timeLimit) throws MIPException;
+
+	/**
+	 * Set the number of threads of the next resolutions
+	 * @param nbThreads	the number of threads
+	 * @throws MIPException
+	 */
+	void setThreads(int nbThreads) throws MIPException;
+
+	/**
+	 * Record the incumbents and bounds found during the next resolutions
+	 * @param trajectory	the trajectory in which the points are recorded (null to stop recording)
+	 * @throws MIPException
+	 */
+	void setTrajectory(Trajectory trajectory) throws MIPException;
+
+	/**
+	 * Register a separation routine of user cuts, called on the solutions of the relaxations during the next resolutions
+	 * @param separator	the separation routine (null to remove it)
+	 * @throws MIPException
+	 */
+	void setCutSeparator(CutSeparator separator) throws MIPException;
+
+	/*
+	 * RESOLUTION
+	 */
+	/**
+	 * Solve the model
+	 * @return	true if a feasible solution was found
+	 * @throws MIPException
+	 */
+	boolean solve() throws MIPException;
+
+	/**
+	 *
+	 * @return	the status of the last resolution ("Optimal", "Feasible", "Infeasible", "Unknown"...)
+	 * @throws MIPException
+	 */
+	String getStatus() throws MIPException;
+
+	/**
+	 *
+	 * @return	true if the last resolution proved that the model is infeasible
+	 * @throws MIPException
+	 */
+	boolean isInfeasible() throws MIPException;
+
+	/**
+	 *
+	 * @return	the objective value of the best solution found
+	 * @throws MIPException if there is no solution
+	 */
+	double getObjValue() throws MIPException;
+
+	/**
+	 *
+	 * @return	the best lower bound on the objective value found by the last resolution
+	 * @throws MIPException
+	 */
+	double getBestObjValue() throws MIPException;
+
+	/**
+	 *
+	 * @param var	the index of a variable
+	 * @return		the value of the variable in the best solution found
+	 * @throws MIPException if there is no solution
+	 */
+	double getValue(int var) throws MIPException;
+
+	/**
+	 * Get the values of a range of variables in a single call
+	 * @param first		the index of the first variable of the range
+	 * @param nbVars	the number of variables of the range
+	 * @return			the value of each variable of the range in the best solution found
+	 * @throws MIPException if there is no solution
+	 */
+	double[] getValues(int first, int nbVars) throws MIPException;
+
+	/**
+	 *
+	 * @return	the number of variables of the model
+	 */
+	int getNbVars();
+
+	/**
+	 * Remove the model and release the memory it uses, the backend may then be used to build a new model
+	 */
+	void clear();
+
+	/**
+	 * Release all the resources of the backend, which cannot be used afterwards
+	 */
+	void end();
+
+	/**
+	 * Create the backend selected in the configuration
+	 * @return	a new MIPBackend object
+	 * @throws MIPException
+	 */
+	static MIPBackend create() throws MIPException {
+		if(Config.MIP_BACKEND.equals("java"))
+			return new SimplexBackend();
+		else if(Config.MIP_BACKEND.equals("cplex")) {
+			/* CPLEX is loaded by name, so that the Java backend compiles and runs without the CPLEX library */
+			try {
+				return (MIPBackend) Class.forName("solverLIRP.CplexBackend").getDeclaredConstructor().newInstance();
+			}
+			catch (InvocationTargetException ite) {
+				if(ite.getCause() instanceof MIPException)
+					throw (MIPException) ite.getCause();
+				throw new MIPException("The CPLEX backend cannot be created", ite.getCause());
+			}
+			catch (ReflectiveOperationException | LinkageError e) {
+				throw new MIPException("The CPLEX backend is not available (" + e + ")", e);
+			}
+		}
+		System.out.println("ERR: Unknown MIP backend " + Config.MIP_BACKEND + " (cplex or java)");
+		System.exit(1);
+		return null;
+	}
+}
@@ -0,0 +1,29 @@
+package solverLIRP;
+
+/**
+ * Error raised by a MIP backend while building or solving a model, whichever solver is behind it. The exceptions of the
+ * underlying solver are wrapped into it, so that the code using a backend does not depend on the solver library.
+ * @author gmas
+ *
+ */
+public class MIPException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create an error of the backend itself
+	 * @param message	the description of the error
+	 */
+	public MIPException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Wrap an error of the underlying solver
+	 * @param message	the description of the error
+	 * @param cause		the exception thrown by the solver
+	 */
+	public MIPException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -1,15 +1,56 @@
 package solverLIRP;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import ilog.concert.IloException;
 import instanceManager.Instance;
 import tools.Config;
+import tools.RandomStreams;
 
 public final class RSH {
 
-	private RSH() {}
+	private static final Object ROUTES_LOCK = new Object();	// Lock on the RouteManager and LocManager objects, shared by the trajectories of a portfolio
+
+	private Instance instLIRP;				// The instance to solve
+	private Incumbent incumbent;			// The best solution found so far, used as a starting point of the resolutions (shared by the trajectories of a portfolio)
+	private int nbThreads;					// Number of threads available to this run of the route sampling
+	private SplittableRandom rnd;			// The random stream used to draw the allocations and sample the routes
+	private Solver[] modelSolvers;			// The persistent models, one per worker (null if a new model is built for each resolution)
+	private BlockingQueue<Solver> freeSolvers;	// The persistent models that are not used by a worker
+	private ExecutorService workerPool;		// The workers solving several subsets of routes at once (null if the subsets are solved one after another)
+	private int nbWorkerThreads;			// Number of threads of CPLEX in each resolution of a worker
+	private BudgetScheduler budget;			// The time left in the run and the time limits of its resolutions
+	private String checkpointFile;			// The file in which the state of the run is saved (null: no checkpoint)
+	private double lastCheckpoint = Double.NEGATIVE_INFINITY;	// The time elapsed in the run when its state was last saved, in seconds
+	private RouteMap routePool;				// The multi-stops routes from which the subsets are sampled, saved in the checkpoints
+	private double startElapsed;			// The time already spent on the resolution when the run starts, in seconds
+	private static double resumedTime;		// The time spent before their interruption by the runs resumed from a checkpoint, in seconds
+
+	/**
+	 * Create the state of a run of the route sampling method on an instance
+	 * @param instLIRP			The instance to solve
+	 * @param incumbent			The best solution found so far, to which the solutions of the run are published
+	 * @param nbThreads			The number of threads available to the run
+	 * @param rnd				The random stream used to draw the allocations and sample the routes
+	 * @param checkpointFile	The file in which the state of the run is saved, and from which it resumes (null: no checkpoint)
+	 * @param startElapsed		The time already spent on the resolution when the run starts, in seconds, taken from its time budget
+	 */
+	private RSH(Instance instLIRP, Incumbent incumbent, int nbThreads, SplittableRandom rnd, String checkpointFile, double startElapsed) {
+		this.instLIRP = instLIRP;
+		this.incumbent = incumbent;
+		this.nbThreads = nbThreads;
+		this.rnd = rnd;
+		this.checkpointFile = checkpointFile;
+		this.startElapsed = startElapsed;
+	}
 
 	/**
 	 * Returns a solution to an LIRP instance by applying (or not) RSH on its different levels
@@ -20,10 +61,10 @@ public final class RSH {
 	 * @param lm		The location manager if we pre-process an assignement for each location to a DC
 	 * @param presolve	If we start with a quick and dirty resolution of the problem to start extracting some routes
 	 * @return			A solution to the LIRP problem
-	 * @throws IloException
+	 * @throws MIPException
 	 */
 	public static Solution computeSolution(Instance instLIRP, RouteManager rm, boolean[] withLoops, int[] rSplit, LocManager lm, boolean presolve)
-			throws IloException {
+			throws MIPException {
 
 		boolean noSampling = true;
 		int lvlIter = 0;
@@ -32,6 +73,7 @@ public final class RSH {
 			lvlIter++;
 		}
 		if(noSampling) {
+			/* The model has one variable per route, so the routes are stored even if they are streamed */
 			RouteMap rMap = new RouteMap();
 			for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
 				rMap.put(lvl, rm.getAllRoutesOfLvl(lvl));
@@ -46,23 +88,106 @@ public final class RSH {
 			NoSplitSol.setSolvingTime(stopChrono - startChrono);
 			return NoSplitSol;
 		}
+		else if(Config.RSH_PORTFOLIO > 1) {
+			return runPortfolio(instLIRP, rm, withLoops, rSplit, lm, presolve);
+		}
 		else {
-			return RSHSol(instLIRP, rm, withLoops, rSplit, lm, presolve);
+			return new RSH(instLIRP, new Incumbent(), Config.THREAD_BUDGET, RandomStreams.get("rsh"), Config.CHECKPOINT_FILE, 0).RSHSol(rm, withLoops, rSplit, lm, presolve);
 		}
 
 	}
 
+	/**
+	 * Run several independent trajectories of the route sampling method at once, each with its own random stream and an equal share
+	 * of the threads. The trajectories publish their solutions to a shared incumbent, and they all stop when the gap target
+	 * or the time limit is reached.
+	 * @param instLIRP	The instance to solve
+	 * @param rm		The RouteManager for this instance
+	 * @param withLoops	Indicators for each level if it includes loops or not
+	 * @param rSplit	The split parameters for the routes at each level
+	 * @param lm		The location manager if we pre-process an assignement for each location to a DC
+	 * @param presolve	If each trajectory starts with a quick and dirty resolution of the problem to start extracting some routes
+	 * @return			The best solution found by the trajectories
+	 */
+	private static Solution runPortfolio(Instance instLIRP, RouteManager rm, boolean[] withLoops, int[] rSplit, LocManager lm, boolean presolve) {
+		long startChrono = System.currentTimeMillis();
+		Incumbent sharedIncumbent = new Incumbent();
+		/* A lower bound on the whole problem is only needed to stop at the gap target */
+		if(Config.PORTFOLIO_GAP > 0)
+			sharedIncumbent.updateLowerBound(computeLowerBound(instLIRP, rm, withLoops));
+
+		/* The trajectories share the time left after the computation of the lower bound */
+		double elapsed = (System.currentTimeMillis() - startChrono) / 1000.0;
+		int nbTrajectories = Config.RSH_PORTFOLIO;
+		int nbThreads = Math.max(1, Config.THREAD_BUDGET / nbTrajectories);
+		ExecutorService portfolioPool = Executors.newFixedThreadPool(nbTrajectories);
+		ArrayList<Future<Solution>> trajectories = new ArrayList<Future<Solution>>();
+		for(int traj = 0; traj < nbTrajectories; traj++) {
+			/* Each trajectory saves its own state */
+			String trajCheckpoint = (Config.CHECKPOINT_FILE != null) ? Config.CHECKPOINT_FILE + "." + traj : null;
+			RSH trajRSH = new RSH(instLIRP, sharedIncumbent, nbThreads, RandomStreams.get("rsh", traj), trajCheckpoint, elapsed);
+			trajectories.add(portfolioPool.submit(() -> trajRSH.RSHSol(rm, withLoops, rSplit, lm, presolve)));
+		}
+		portfolioPool.shutdown();
+		try {
+			/* Past the time limit, the trajectories are asked to stop after their current resolution */
+			long timeLeft = (long) (Config.NOSPLIT_TILIM * 1000) - (System.currentTimeMillis() - startChrono);
+			if(!portfolioPool.awaitTermination(Math.max(timeLeft, 0), TimeUnit.MILLISECONDS))
+				sharedIncumbent.stop();
+			for(Future<Solution> trajSol : trajectories)
+				trajSol.get();
+		}
+		catch (InterruptedException | ExecutionException e) {
+			System.out.println("ERR while running the portfolio of trajectories: " + e.getMessage());
+			System.exit(1);
+		}
+		System.out.println("Portfolio gap: " + sharedIncumbent.getGap());
+		return sharedIncumbent.get();
+	}
+
+	/**
+	 * Compute a lower bound on the whole problem with the linear relaxation of the model on all the routes (which are stored
+	 * for the time of the resolution, even if they are streamed)
+	 * @param instLIRP	The instance to solve
+	 * @param rm		The RouteManager for this instance
+	 * @param withLoops	Indicators for each level if it includes loops or not
+	 * @return			The optimal value of the linear relaxation (Double.NEGATIVE_INFINITY if it is not solved to optimality)
+	 */
+	private static double computeLowerBound(Instance instLIRP, RouteManager rm, boolean[] withLoops) {
+		RouteMap allRoutes = rm.getAllRoutes(withLoops);
+		addRoutes(allRoutes, rm.getAllDirects());
+		try {
+			Solver relaxSolver = new Solver(instLIRP, allRoutes, null, Config.PRESOLVE_TILIM);
+			relaxSolver.setThreads(Config.THREAD_BUDGET);
+			Solution relaxSol = relaxSolver.getSolution(true, Config.ACCEPT_TS);
+			if("Optimal".equals(relaxSol.getStatus()))
+				return relaxSol.getLB();
+		}
+		catch (MIPException mipe) {
+			System.out.println("ERR while solving the linear relaxation: " + mipe.getMessage());
+			System.exit(1);
+		}
+		return Double.NEGATIVE_INFINITY;
+	}
+
 	/**
 	 * Solves an LIRP problem using the route sampling method
-	 * @param instLIRP		The instance to solve
 	 * @param rm			The RouteManager object containing the routes available for the instance
 	 * @param withLoops	 	Indicator for each level of the network if multi-stops routes are allowed or not
 	 * @param rSplit		The split parameter for loop routes at each level
 	 * @param lm			The LocManager object to use to link location with sources from the upper level
 	 * @return				A solution to the LIRP problem corresponding to the instance instLIRP
-	 * @throws IloException
+	 * @throws MIPException
 	 */
-	private static Solution RSHSol(Instance instLIRP, RouteManager rm, boolean[] withLoops, int[] rSplit, LocManager lm, boolean presolve) throws IloException {
+	private Solution RSHSol(RouteManager rm, boolean[] withLoops, int[] rSplit, LocManager lm, boolean presolve) throws MIPException {
+		/* The relocated sites are not saved in the instance file and are drawn again by another run: the routes and solutions of a
+		 * checkpoint would not match the instance of the run that resumes from it */
+		if(rm.hasRelocatedSites() && this.checkpointFile != null) {
+			System.out.println("Some sites were relocated to be reachable, the state of the run is not saved or resumed");
+			this.checkpointFile = null;
+		}
+		/* A resumed run skips the collection of the routes and the pre-processing, whose result is in the checkpoint */
+		Checkpoint resumed = this.readCheckpoint();
 		/*
 		 * ======================================================= 
 		 * Create two HashMaps of Routes objects : the first one 
@@ -70,12 +195,29 @@ public final class RSH {
 		 * one contains the loop routes for each level
 		 * ======================================================= 
 		 */
-		RouteMap setOfDirect = rm.getAllDirects();
-		RouteMap setOfRoutes = rm.getAllRoutes(withLoops);
-		/* The total time available to solve the instance is the same as the solver time without sampling */
+		RouteMap setOfDirect = null;
+		/* If the routes are streamed, filter them as they are generated so that the rejected routes are never stored
+		 * (unless the presolve needs the whole set of routes) */
+		boolean filterStream = rm.isStreaming() && lm != null && !presolve;
+		RouteMap setOfRoutes = null;
+		try {
+			synchronized(ROUTES_LOCK) {
+				setOfDirect = rm.getAllDirects();
+				if(resumed == null)
+					setOfRoutes = rm.getAllRoutes(withLoops, filterStream ? lm : null, this.rnd);
+			}
+		}
+		catch (IOException ioe) {
+			System.out.println("ERR: Problem while filtering the routes");
+			System.out.println(ioe.getMessage());
+			System.exit(1);
+		}
+		/* The total time available to solve the instance is the same as the solver time without sampling, the time needed
+		 * by the final resolution is kept aside from the partial resolutions */
 		double timeLimit = Config.NOSPLIT_TILIM;
+		this.budget = new BudgetScheduler(timeLimit, Config.MAIN_TILIM, Config.AUX_TILIM, this.startElapsed + ((resumed != null) ? resumed.getElapsed() : 0));
 
-		int[] subsetSizes = new int[instLIRP.getNbLevels()];
+		int[] subsetSizes = new int[this.instLIRP.getNbLevels()];
 
 		for(int lvl = 0; lvl < subsetSizes.length; lvl++) {
 			/* If the split parameter of this level is greater than 0, 
@@ -88,58 +230,113 @@ public final class RSH {
 			}
 			/* Otherwise, we create only one subset containing all the routes */
 			else {
-				subsetSizes[lvl] = setOfRoutes.get(lvl).size();
+				subsetSizes[lvl] = ((resumed != null) ? resumed.getRoutePool() : setOfRoutes).get(lvl).size();
+			}
+		}
+		RouteMap rMap = null;
+		/* The routes sampled first are those collected by the last iteration before the checkpoint with their scores, if any */
+		ElitePool startRoutes = null;
+		Solution resumedSol = null;
+		if(resumed != null) {
+			rMap = resumed.getRoutePool();
+			this.rnd = new SplittableRandom(resumed.getSeed());
+			this.lastCheckpoint = resumed.getElapsed();
+			recordResumedTime(resumed.getElapsed());
+			resumedSol = resumed.getBestSol();
+			if(resumedSol != null) {
+				resumedSol.setSolvingTime((long) (resumed.getElapsed() * 1000));
+				this.incumbent.update(resumedSol);
+			}
+			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+				if(resumed.getCollectedRoutes().size(lvl) > 0)
+					startRoutes = resumed.getCollectedRoutes();
+			}
+		}
+		else {
+			rMap = this.preProcess(setOfDirect, setOfRoutes, filterStream ? null : lm, presolve);
+		}
+		setOfRoutes = null;
+		this.routePool = rMap;
+		if(resumed == null)
+			this.saveCheckpoint(null);
+
+		/* If several workers solve the subsets at once, the threads available are split between them */
+		int nbWorkers = Math.max(1, Config.RSH_WORKERS);
+		if(nbWorkers > 1) {
+			this.workerPool = Executors.newFixedThreadPool(nbWorkers);
+			this.nbWorkerThreads = Math.max(1, this.nbThreads / nbWorkers);
+		}
+		/* If the model is reused, build it once on all the routes that may be sampled (one copy for each worker) */
+		if(Config.REUSE_MODEL) {
+			RouteMap allRoutes = new RouteMap();
+			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+				allRoutes.put(lvl, new RouteSet());
+				allRoutes.get(lvl).addAll(setOfDirect.get(lvl));
+				if(rMap.get(lvl) != null)
+					allRoutes.get(lvl).addAll(rMap.get(lvl));
+			}
+			this.modelSolvers = new Solver[nbWorkers];
+			this.freeSolvers = new ArrayBlockingQueue<Solver>(nbWorkers);
+			for(int worker = 0; worker < nbWorkers; worker++) {
+				this.modelSolvers[worker] = new Solver(this.instLIRP, allRoutes, null, timeLimit, true);
+				this.freeSolvers.add(this.modelSolvers[worker]);
 			}
 		}
-		/* Total time spent on partial solutions */
-		double totalTime = 0;
-
-		long startChrono = System.currentTimeMillis();
-		RouteMap rMap = preProcess(instLIRP, setOfDirect, setOfRoutes, lm, presolve);
-		totalTime += System.currentTimeMillis() - startChrono;
 
 		/* Create dumb solutions to store the intermediate results */
-		Solution currentSol = getSampleSol(instLIRP, setOfDirect, rMap, subsetSizes, timeLimit);
+		Solution currentSol = this.getSampleSol(setOfDirect, rMap, subsetSizes, startRoutes);
 		Solution bestSol = new Solution();
-
-		/* Total time spent on partial solutions */
-		totalTime += currentSol.getSolvingTime();
+		this.saveCheckpoint(null);
 
 		/* As long as we have some time available, re-apply the algorithm to find other solutions */
-		while(bestSol.getObjVal() < 0 || (totalTime < timeLimit && currentSol != null && currentSol.getObjVal() < bestSol.getObjVal())) {
+		while(currentSol != null && (bestSol.getObjVal() < 0 || (this.budget.getRemaining() > 0 && currentSol.getObjVal() < bestSol.getObjVal()))) {
 			bestSol = currentSol;
-			if(timeLimit - totalTime < Config.MAIN_TILIM) {
+			if(this.budget.getRemaining() < Config.MAIN_TILIM || this.isStopped()) {
 				currentSol = null;
 			}
 			else {
 				/* Get a new current solution using a new sampling of the loop routes */
-				currentSol = getSampleSol(instLIRP, setOfDirect, rMap, subsetSizes, timeLimit - totalTime);
+				currentSol = this.getSampleSol(setOfDirect, rMap, subsetSizes, null);
+				this.saveCheckpoint(null);
 			}
-			if(currentSol != null)
-				totalTime += currentSol.getSolvingTime();
-			System.out.println("Total Time elapsed : " + totalTime);
+			System.out.println("Total Time elapsed : " + this.budget.getElapsed());
+		}
+		this.budget.printSummary();
+		if(this.workerPool != null)
+			this.workerPool.shutdown();
+		if(this.modelSolvers != null) {
+			for(Solver modelSolver : this.modelSolvers)
+				modelSolver.end();
 		}
-		return bestSol;
+		/* A resumed run keeps the best solution found before the checkpoint if it finds nothing better */
+		if(resumedSol != null && (bestSol.getObjVal() < 0 || resumedSol.getObjVal() < bestSol.getObjVal()))
+			bestSol = resumedSol;
+		/* The run may be stopped before its first solution */
+		return (bestSol.getObjVal() < 0) ? null : bestSol;
 	}
 
 	/**
 	 * 
-	 * @param instLIRP	The instance of the LIRP problem to solve
 	 * @param directMap	The RouteMap object containing all the direct routes
 	 * @param rMap		The RouteMap object containing all the multi-stops routes
 	 * @param lm		The LocManager object assigning locations to DCs of the upper level
 	 * @param presolve	Boolean indicating if the pre-processing solves the linear relaxation to further shrink the set of routes available
 	 * @return			A RouteMap object containing the multi-stops routes to use throughout the resolution
 	 */
-	private static RouteMap preProcess(Instance instLIRP, RouteMap directMap, RouteMap rMap, LocManager lm, boolean presolve) {
+	private RouteMap preProcess(RouteMap directMap, RouteMap rMap, LocManager lm, boolean presolve) {
 		try {
-			RouteMap filteredRoutes = rMap.filterRoutes(lm);
+			RouteMap filteredRoutes = null;
+			synchronized(ROUTES_LOCK) {
+				filteredRoutes = rMap.filterRoutes(lm, this.rnd);
+			}
 			/* If the presolve option is activated, solve the problem without sampling first and to extract the routes used and 
 			 * reduce the pool of routes from which to sample from 
 			 */
-			if(presolve)
+			if(presolve) {
 				/* If we solve a relaxation of the problem, collect the multi-stops routes used in the relaxed solutions */
-				return collectMSRoutes(instLIRP, rMap, filteredRoutes, Config.NOSPLIT_TILIM, Config.PRESOLVE_TILIM, presolve);
+				this.budget.openPhase(BudgetScheduler.PRESOLVE, Config.PRESOLVE_NB, 1, Config.PRESOLVE_TILIM);
+				return this.collectMSRoutes(null, rMap, filteredRoutes, presolve, this.nbThreads).getRouteMap();
+			}
 			else
 				return filteredRoutes;
 		}
@@ -154,22 +351,28 @@ public final class RSH {
 
 	/**
 	 * Compute a solution to the original LIRP instance using the a specified set of routes
-	 * @param instLIRP		The instance of the LIRP problem considered
 	 * @param directMap		The RouteMap object containing the direct routes
 	 * @param rMap			The RouteMap object containing the multi-stops routes
 	 * @param subsetSizes	The samples size in each level
-	 * @param remainingTime	The time remaining in the allowed resolution time
+	 * @param startPool		The scored routes collected by the interrupted iteration of a resumed run, from which the first subsets are
+	 * 						drawn instead of rMap (null if there is none)
 	 * @return				A Solution object to the LIRP
 	 */
-	private static Solution getSampleSol(Instance instLIRP, RouteMap directMap, RouteMap rMap, int[] subsetSizes, double remainingTime){
-		double totalTime = 0;
-
-		/* Create a HashMap to store the subsets of routes at each level */
-		SampleMap lvlSamples = new SampleMap(rMap, subsetSizes);
+	private Solution getSampleSol(RouteMap directMap, RouteMap rMap, int[] subsetSizes, ElitePool startPool){
+		long sampleChrono = System.currentTimeMillis();
+
+		/* Create a HashMap to store the subsets of routes at each level, resampled as the interrupted iteration would have done if the run resumes */
+		SampleMap lvlSamples;
+		if(startPool != null) {
+			rMap = startPool.getRouteMap();
+			lvlSamples = new SampleMap(startPool, subsetSizes, this.rnd);
+		}
+		else
+			lvlSamples = new SampleMap(rMap, subsetSizes, this.rnd);
 		int nbSubsets = 1;
 		int previousNbRoutes = 0;
 		/* The total number of subset is the number of possible combinations between all the subset of routes */
-		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
 			previousNbRoutes += rMap.get(lvl).size();
 			nbSubsets *= lvlSamples.get(lvl).size();
 		}
@@ -177,7 +380,7 @@ public final class RSH {
 		lvlSamples.completeSamples(directMap);
 
 		/* Get all the possible combinations of route samples from each level */
-		HashSet<RouteMap> setOfMapRoutes = lvlSamples.getCombinations();
+		Iterable<RouteMap> setOfMapRoutes = lvlSamples.getCombinations();
 
 		/* Routes object that are candidate for the final solution */
 		RouteMap selectedRoutes = new RouteMap();
@@ -194,32 +397,28 @@ public final class RSH {
 		int nbIterations = 0;
 		int nbRoutes = 0;
 
-		while(nbSubsets > 1 && nbRoutes < previousNbRoutes && totalTime + Config.MAIN_TILIM < remainingTime) {
-			/* Set of all loops used in at least one of the intermediate solutions */
-			RouteMap collectedRoutes = new  RouteMap();
+		while(nbSubsets > 1 && nbRoutes < previousNbRoutes && this.budget.getRemaining() > Config.MAIN_TILIM && !this.isStopped()) {
+			/* Best loops used in the intermediate solutions, scored by how often and in how good solutions they are used */
+			ElitePool collectedRoutes = new ElitePool(Config.ELITE_SIZE);
 			nbIterations++;
 			System.out.println("========================================");
-			System.out.println("== Iteration " + nbIterations + ": Solving with " + setOfMapRoutes.size() + " subsets of routes ==");
+			System.out.println("== Iteration " + nbIterations + ": Solving with " + lvlSamples.getNbCombinations() + " subsets of routes ==");
 			System.out.println("========================================");
-			double partialTiLim = Math.max((remainingTime - Config.MAIN_TILIM) / (1.5 * Config.RECOMPUTE * setOfMapRoutes.size()), Config.AUX_TILIM);
-			for(RouteMap availRoutes : setOfMapRoutes) {
-				long startChrono = System.currentTimeMillis();
-				RouteMap eliteRoutes = collectMSRoutes(instLIRP, directMap, availRoutes, remainingTime - totalTime, partialTiLim, false);
-				for(int lvl : eliteRoutes.keySet()) {
-					if(collectedRoutes.get(lvl) != null) {
-						collectedRoutes.get(lvl).addAll(eliteRoutes.get(lvl));
-					}
-					else {
-						collectedRoutes.put(lvl, new RouteSet());
-						collectedRoutes.get(lvl).addAll(eliteRoutes.get(lvl));
-					}
+			/* The subsets of this iteration share two thirds of the time left, the subsets solved at once by the workers share the time of a single subset */
+			this.budget.openPhase(BudgetScheduler.PARTIAL, 1.5 * Config.RECOMPUTE * lvlSamples.getNbCombinations(), Math.max(1, Config.RSH_WORKERS), Double.POSITIVE_INFINITY);
+			if(this.workerPool == null) {
+				for(RouteMap availRoutes : setOfMapRoutes) {
+					ElitePool eliteRoutes = this.collectMSRoutes(this.getModelSolver(), directMap, availRoutes, false, this.nbThreads);
+					collectedRoutes.merge(eliteRoutes);
 				}
-				long stopChrono = System.currentTimeMillis();
-				totalTime += stopChrono - startChrono;
 			}
+			else {
+				this.collectInParallel(collectedRoutes, directMap, setOfMapRoutes);
+			}
+			this.saveCheckpoint(collectedRoutes);
 
-			/* Re-sample from the set of collected loops */
-			lvlSamples.reSample(collectedRoutes, subsetSizes);
+			/* Re-sample from the set of collected loops, the best scored ones being the most likely to be drawn */
+			lvlSamples.reSample(collectedRoutes, subsetSizes, this.rnd);
 			/* Complete the subsets to reach all locations */
 			lvlSamples.completeSamples(directMap);
 			/* Get all the possible combinations of route samples from each level */
@@ -229,40 +428,38 @@ public final class RSH {
 			previousNbRoutes = nbRoutes;
 			nbRoutes = 0;
 			/* The total number of subset is the number of possible combinations between all the subset of routes */
-			for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
-				nbRoutes += collectedRoutes.get(lvl).size();
+			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+				nbRoutes += collectedRoutes.size(lvl);
 				nbSubsets *= lvlSamples.get(lvl).size();
 			}
 
 			/* If this is the last computation of partial solution, keep all the collected multi-stops routes for the final computation */
 			if(nbSubsets == 1) {
 				for(int lvl: selectedRoutes.keySet())
-					selectedRoutes.get(lvl).addAll(collectedRoutes.get(lvl));
+					selectedRoutes.get(lvl).addAll(collectedRoutes.getRoutes(lvl));
 			}
 		}
 
 		try {
 			long startChrono = System.currentTimeMillis();
-			if(remainingTime - totalTime > Config.AUX_TILIM) {
+			if(this.budget.getRemaining() > Config.AUX_TILIM && !this.isStopped()) {
 				/* Use the set of collected routes to solve the instance */
-				Solver solverLIRP = new Solver(instLIRP, selectedRoutes, null, remainingTime - totalTime);
-				/* Call the method from the solver */
-				Solution sampleSol = solverLIRP.getSolution(false, Config.EPSILON);
+				Solution sampleSol = this.solve(this.getModelSolver(), selectedRoutes, this.incumbent.get(), this.budget.allocate(BudgetScheduler.FINAL), false, this.nbThreads);
 
 				long stopChrono = System.currentTimeMillis();
-				sampleSol.setSolvingTime(stopChrono - startChrono);
-
 				sampleSol.computeObjValue();
+				this.incumbent.update(sampleSol);
+				this.budget.record(BudgetScheduler.FINAL, (stopChrono - startChrono) / 1000.0, getGap(sampleSol));
 
-				totalTime += sampleSol.getSolvingTime();
-				System.out.println("Setting the solving time to " + totalTime);
-				sampleSol.setSolvingTime(((long) (totalTime * 1000)));
+				/* The solving time of the sample solution covers all its iterations, in milliseconds like the other solving times */
+				System.out.println("Setting the solving time to " + (stopChrono - sampleChrono) / 1000.0);
+				sampleSol.setSolvingTime(stopChrono - sampleChrono);
 				return sampleSol;
 			}
 		}
-		catch(IloException iloe) {
+		catch(MIPException mipe) {
 			System.out.println("ERR: Problem while solving the problem");
-			System.out.println(iloe.getMessage());
+			System.out.println(mipe.getMessage());
 			System.exit(1);
 		}
 
@@ -271,49 +468,44 @@ public final class RSH {
 
 	/**
 	 * Returns the routes of each level used in a solution for the LIRP 
-	 * @param instLIRP		The instance of LIRP to solve
+	 * @param modelSolver	The persistent model on which the subsets of routes are solved (null to build a new model for each subset)
 	 * @param directMap		The RouteMap object containing the direct routes in each level
-	 * @param availLoopsMap	The RouteMap object containing all the routes available in each level
-	 * @param timeLeft		The time left for solving the problem
-	 * @param partialTiLim	The time left for solving the partial problem
-	 * @return				A RouteMap object containing the multi-stops routes routes used in each level
+	 * @param availMap		The RouteMap object containing all the routes available in each level (left unchanged)
+	 * @param presolve		If the linear relaxation of the problem is solved (the time limits are those of the presolve phase)
+	 * @param nbThreads		The number of threads of CPLEX
+	 * @return				An ElitePool object containing the multi-stops routes routes used in each level, scored by the solutions using them
 	 */
-	private static RouteMap collectMSRoutes(Instance instLIRP, RouteMap directMap, RouteMap availLoopsMap, double timeLeft, double partialTiLim, boolean presolve){
-		RouteMap allUsedRoutes = new RouteMap();
+	private ElitePool collectMSRoutes(Solver modelSolver, RouteMap directMap, RouteMap availMap, boolean presolve, int nbThreads){
+		/* The routes are only evicted when the pools of the subsets are merged */
+		ElitePool allUsedRoutes = new ElitePool(0);
+		/* The sets of routes may be shared with other subsets, the routes are completed and removed on a copy */
+		RouteMap availLoopsMap = new RouteMap();
+		addRoutes(availLoopsMap, availMap);
 		/* Create a map of available routes after filtering the routes in mapLoops */
 		int computeIter = 0;
-		int nbComput = Config.RECOMPUTE;
-		/* If the objective is to collect a first set of routes from the linear relaxation, set the time limit 
-		 * for each resolution based on the number of presolve */
-		if(presolve) {
-			nbComput = Config.PRESOLVE_NB;
-			partialTiLim *= 1.0/nbComput; 
-		}
+		/* If the objective is to collect a first set of routes from the linear relaxation, the resolutions share the time of the presolve */
+		int nbComput = presolve ? Config.PRESOLVE_NB : Config.RECOMPUTE;
+		String phase = presolve ? BudgetScheduler.PRESOLVE : BudgetScheduler.PARTIAL;
 
-		double updatedTimeLeft = timeLeft;
 		/* Compute solutions sequentially by removing used routes from one iteration to the next */
 		while (computeIter < nbComput) {
 			Solution partialSol = null;
 			/* If the remaining time is enough to compute a solution to a subproblem, 
 			 * create a problem with a subset of available loops */
-			if(Config.MAIN_TILIM < updatedTimeLeft) {
+			double partialTiLim = this.budget.allocate(phase);
+			if(Config.MAIN_TILIM < this.budget.getRemaining() && partialTiLim > 0 && !this.isStopped()) {
 				/* Complete the map of multi-stops routes with direct routes for unreachable clients */
 				availLoopsMap.completeMap(directMap);
-				partialSol = getPartialSol(instLIRP, availLoopsMap, partialTiLim, presolve);
-				updatedTimeLeft -= partialSol.getSolvingTime();
+				partialSol = this.getPartialSol(modelSolver, availLoopsMap, partialTiLim, presolve, nbThreads);
+				this.budget.record(phase, partialSol.getSolvingTime(), presolve ? 0 : getGap(partialSol));
 			}
 			/* If we have computed a partial solution, add the multi-stops routes used in this solution to the collected ones */
 			if (partialSol != null) {
 				RouteMap usedLoops = partialSol.collectUsedLoops();
+				/* The routes of a solution as good as the incumbent score 1 (the relaxed solutions all score 1) */
+				Solution bestSol = this.incumbent.get();
+				allUsedRoutes.record(usedLoops, (presolve || bestSol == null) ? 1 : bestSol.getObjVal() / partialSol.getObjVal());
 				for(int lvl : availLoopsMap.keySet()) {
-					if(allUsedRoutes.get(lvl) != null) {
-						allUsedRoutes.get(lvl).addAll(usedLoops.get(lvl));
-					}
-					else {
-						allUsedRoutes.put(lvl, new RouteSet());
-						allUsedRoutes.get(lvl).addAll(usedLoops.get(lvl));
-					}
-
 					/* Remove the collected multi-stops routes from the available multi-stops routes for the next iteration */
 					availLoopsMap.get(lvl).removeAll(usedLoops.get(lvl));
 				}
@@ -323,15 +515,7 @@ public final class RSH {
 			 * add all the remaining loops to the collected ones
 			 */
 			else {
-				for(int lvl: availLoopsMap.keySet()) {
-					if(allUsedRoutes.get(lvl) != null) {
-						allUsedRoutes.get(lvl).addAll(availLoopsMap.get(lvl));
-					}
-					else {
-						allUsedRoutes.put(lvl, new RouteSet());
-						allUsedRoutes.get(lvl).addAll(availLoopsMap.get(lvl));
-					}
-				}
+				allUsedRoutes.record(availLoopsMap, 0);
 			}
 			computeIter++;
 		}
@@ -340,31 +524,192 @@ public final class RSH {
 	}
 
 	/**
-	 * Compute a partial solution based on a set of available routes
-	 * @param instLIRP		The instance of the LIRP problem considered
+	 * Compute a partial solution based on a set of available routes, starting from the incumbent and updating it if the partial solution is better
+	 * @param modelSolver	The persistent model on which the routes are solved (null to build a new model)
 	 * @param routesLvls	The set of available routes for each level of the network
+	 * @param nbThreads		The number of threads of CPLEX
 	 * @return				A pair containing the solving time and the set of routes used in the solution (from the set of available ones)
 	 */
-	private static Solution getPartialSol(Instance instLIRP, RouteMap routesLvls, double timeLim, boolean presolve){
+	private Solution getPartialSol(Solver modelSolver, RouteMap routesLvls, double timeLim, boolean presolve, int nbThreads){
 
 		long startChrono = System.currentTimeMillis();
 		try {
-			Solver solverLIRP = new Solver(instLIRP, routesLvls, null, timeLim);
-			Solution partialSol; 
-			if(presolve) 
-				partialSol = solverLIRP.getSolution(true, Config.ACCEPT_TS);
-			else 
-				partialSol = solverLIRP.getSolution(false, Config.EPSILON);
+			Solution partialSol = this.solve(modelSolver, routesLvls, this.incumbent.get(), timeLim, presolve, nbThreads);
+			/* A partial solution is feasible for the whole problem (unless it solves the relaxation) */
+			if(!presolve) {
+				partialSol.computeObjValue();
+				this.incumbent.update(partialSol);
+			}
 
 			long stopChrono = System.currentTimeMillis();
 
 			partialSol.setSolvingTime(stopChrono - startChrono);
 			return partialSol;
-		} catch (IloException iloe) {
-			System.out.println("ERR while trying to solve a subproblem: " + iloe.getMessage());
+		} catch (MIPException mipe) {
+			System.out.println("ERR while trying to solve a subproblem: " + mipe.getMessage());
 			System.exit(1);
 		}
 
 		return null;
 	}
+
+	/**
+	 * Solve the LIRP on a set of routes, either on the persistent model restricted to these routes or on a new model
+	 * @param modelSolver	The persistent model (null to build a new model)
+	 * @param routesLvls	The set of available routes for each level of the network
+	 * @param startSol		The solution from which the resolution starts (null if there is none, ignored for the linear relaxation)
+	 * @param timeLim		The time limit of the resolution
+	 * @param relax			If the linear relaxation of the problem is solved
+	 * @param nbThreads		The number of threads of CPLEX
+	 * @return				The solution of the problem
+	 * @throws MIPException
+	 */
+	private Solution solve(Solver modelSolver, RouteMap routesLvls, Solution startSol, double timeLim, boolean relax, int nbThreads) throws MIPException {
+		double threshold = relax ? Config.ACCEPT_TS : Config.EPSILON;
+		if(relax)
+			startSol = null;
+		/* The routes may only be activated if they all belong to the persistent model */
+		if(modelSolver != null && modelSolver.activateRoutes(routesLvls)) {
+			modelSolver.setTimeLimit(timeLim);
+			modelSolver.setThreads(nbThreads);
+			modelSolver.setStartSolution(startSol);
+			return modelSolver.getSolution(relax, threshold);
+		}
+		Solver solverLIRP = new Solver(this.instLIRP, routesLvls, startSol, timeLim);
+		solverLIRP.setThreads(nbThreads);
+		return solverLIRP.getSolution(relax, threshold);
+	}
+
+	/**
+	 * Solve subsets of routes on the worker pool and collect the multi-stops routes used in their solutions. Each worker solves
+	 * its subsets on its own persistent model if the model is reused.
+	 * @param collectedRoutes	The ElitePool object to which the collected routes are added, in the order of the subsets
+	 * @param directMap			The RouteMap object containing the direct routes in each level
+	 * @param setOfMapRoutes	The subsets of routes to solve
+	 */
+	private void collectInParallel(ElitePool collectedRoutes, RouteMap directMap, Iterable<RouteMap> setOfMapRoutes) {
+		ArrayList<Future<ElitePool>> eliteRoutes = new ArrayList<Future<ElitePool>>();
+		for(RouteMap availRoutes : setOfMapRoutes) {
+			eliteRoutes.add(this.workerPool.submit(() -> {
+				Solver modelSolver = (this.freeSolvers != null) ? this.freeSolvers.take() : null;
+				try {
+					return this.collectMSRoutes(modelSolver, directMap, availRoutes, false, this.nbWorkerThreads);
+				}
+				finally {
+					if(modelSolver != null)
+						this.freeSolvers.put(modelSolver);
+				}
+			}));
+		}
+		/* Merge the routes in the order of the subsets, so that the next samples do not depend on the order in which the workers finish */
+		try {
+			for(Future<ElitePool> subsetRoutes : eliteRoutes)
+				collectedRoutes.merge(subsetRoutes.get());
+		}
+		catch (InterruptedException | ExecutionException e) {
+			System.out.println("ERR while solving the subsets of routes in parallel: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * 
+	 * @return	the state of the run saved in its checkpoint file, or null if the run does not resume or there is no valid checkpoint
+	 */
+	private Checkpoint readCheckpoint() {
+		if(!Config.RESUME || this.checkpointFile == null)
+			return null;
+		Checkpoint resumed = null;
+		try {
+			resumed = Checkpoint.read(this.instLIRP, this.checkpointFile);
+		}
+		catch (IOException ioe) {
+			System.out.println("ERR: Problem while reading the checkpoint " + this.checkpointFile);
+			System.out.println(ioe.getMessage());
+			System.exit(1);
+		}
+		if(resumed != null)
+			System.out.println("Resuming from the checkpoint " + this.checkpointFile + " after " + resumed.getElapsed() + "s");
+		return resumed;
+	}
+
+	/**
+	 * Save the state of the run if the last checkpoint is old enough. The random stream restarts from a seed drawn from it at each
+	 * call, written or not, so that the numbers drawn afterwards do not depend on when the checkpoints are written.
+	 * @param collectedRoutes	the multi-stops routes collected by the current iteration (null between two samplings)
+	 */
+	private void saveCheckpoint(ElitePool collectedRoutes) {
+		long seed = this.rnd.nextLong();
+		this.rnd = new SplittableRandom(seed);
+		if(this.checkpointFile == null || this.budget.getElapsed() - this.lastCheckpoint < Config.CHECKPOINT_PERIOD)
+			return;
+		try {
+			double elapsed = this.budget.getElapsed();
+			new Checkpoint(elapsed, seed, this.routePool, collectedRoutes, this.incumbent.get()).write(this.instLIRP, this.checkpointFile);
+			this.lastCheckpoint = elapsed;
+			System.out.println("State of the run saved in " + this.checkpointFile);
+		}
+		catch (IOException ioe) {
+			System.out.println("ERR: Problem while writing the checkpoint " + this.checkpointFile);
+			System.out.println(ioe.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Keep the time spent by an interrupted run resumed from its checkpoint
+	 * @param elapsed	the time elapsed in the run when its checkpoint was saved, in seconds
+	 */
+	private static synchronized void recordResumedTime(double elapsed) {
+		resumedTime = Math.max(resumedTime, elapsed);
+	}
+
+	/**
+	 * 
+	 * @return	the time spent before their interruption by the runs resumed from a checkpoint (the longest one for the trajectories
+	 * 			of a portfolio), in seconds, 0 if no run was resumed
+	 */
+	public static synchronized double getResumedTime() {
+		return resumedTime;
+	}
+
+	/**
+	 * 
+	 * @return	true if the run must stop, because the time limit of the portfolio or its gap target is reached
+	 */
+	private boolean isStopped() {
+		return this.incumbent.isClosed(Config.PORTFOLIO_GAP);
+	}
+
+	/**
+	 * 
+	 * @return	the persistent model used outside of the workers (null if a new model is built for each resolution)
+	 */
+	private Solver getModelSolver() {
+		return (this.modelSolvers != null) ? this.modelSolvers[0] : null;
+	}
+
+	/**
+	 * 
+	 * @param sol	a solution whose objective value has been computed
+	 * @return		the relative gap between the objective value of the solution and the lower bound of its resolution
+	 */
+	private static double getGap(Solution sol) {
+		if(sol.getObjVal() <= 0)
+			return Double.POSITIVE_INFINITY;
+		return Math.max(0, (sol.getObjVal() - sol.getLB()) / sol.getObjVal());
+	}
+
+	/**
+	 * Add the routes of each level of a RouteMap object to another one
+	 * @param rMap		The RouteMap object to complete
+	 * @param newRoutes	The routes to add
+	 */
+	private static void addRoutes(RouteMap rMap, RouteMap newRoutes) {
+		for(int lvl : newRoutes.keySet()) {
+			if(rMap.get(lvl) == null)
+				rMap.put(lvl, new RouteSet());
+			rMap.get(lvl).addAll(newRoutes.get(lvl));
+		}
+	}
 }
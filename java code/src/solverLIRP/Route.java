@@ -9,6 +9,7 @@ import org.json.JSONObject;
 import instanceManager.Instance;
 import instanceManager.Location;
 import tools.Config;
+import tools.HeldKarp;
 
 public class Route {
 
@@ -19,12 +20,14 @@ public class Route {
 	
 	private int lvl;
 	private int start; 						// The start of the route (index of depot in model 1, -1 in model 2 to refer to the supplier)
-	private LinkedHashSet<Integer> stops; 	// Permutation of the stops indices corresponding to the best route
+	private int[] stops; 					// Permutation of the stops indices corresponding to the best route
+	private long[] members; 				// Bitset of the indices of the locations of the level visited by the route
 	
 	private double travelTime; 				// The duration of the route (travel and stopping time)
 	private double stopTime; 				// The total time spent delivering the stops
 	private double cost; 					// The cost of the route
 	private boolean isDummy;
+	private int hash; 						// Hash code of the route, computed once from its level, start and stops
 
 	/*======================
 	 *      CONSTRUCTOR 
@@ -34,18 +37,18 @@ public class Route {
 	 * @param start, points
 	 * @throws IOException
 	 */
-	private Route(Instance instLIRP, int lvl, int start, LinkedHashSet<Integer> stops) throws IOException {
+	private Route(Instance instLIRP, int lvl, int start, int[] stops, boolean sequence) throws IOException {
 		this.instLIRP = instLIRP;
 		this.lvl = lvl; 
 		/* If the start index is negative and the route does not serves the first level, 
 		 * mark it as dummy */
 		this.isDummy =  (start < 0 && lvl > 0);
 		this.start = start;
-		this.stops = new LinkedHashSet<Integer>(stops);
-		ArrayList<Integer> startingPermutation = new ArrayList<Integer>(stops);
-		this.stops = bruteForceFindBestRoute(new ArrayList<Integer>(), startingPermutation);
+		/* Visit the stops in the best order, or in the order given if they must not be sequenced */
+		this.stops = sequence ? findBestRoute(stops) : stops;
+		this.initMembers();
 		this.travelTime = computeTravelTime();
-		this.stopTime = Config.STOPPING_TIME * this.stops.size();
+		this.stopTime = Config.STOPPING_TIME * this.stops.length;
 		this.cost = Config.FIXED_COST_ROUTE + Config.COST_KM * Config.AVG_SPEED * this.travelTime;
 
 		if(this.isDummy) {
@@ -67,8 +70,8 @@ public class Route {
 		this.isDummy =  (start < 0 && lvl > 0);
 
 		this.start = start;
-		this.stops = new LinkedHashSet<Integer>();
-		this.stops.add(index);
+		this.stops = new int[] {index};
+		this.initMembers();
 		this.travelTime = computeTravelTime();
 		/* If the route is a dummy route, add the maximum time allowed for a route to the travel duration */
 		if(this.isDummy) {
@@ -85,6 +88,27 @@ public class Route {
 		}
 	}
 	
+	/**
+	 * Create a Route object from attributes computed beforehand (when the route is read from a file)
+	 * @param instLIRP		the instance from which the stops of the route are collected
+	 * @param lvl			the level served by the route
+	 * @param start			the index of the start of the route (-1 for the supplier)
+	 * @param stops			the indices of the stops, in the order in which they are visited
+	 * @param travelTime	the travel time along the route
+	 * @param cost			the cost of the route
+	 */
+	Route(Instance instLIRP, int lvl, int start, int[] stops, double travelTime, double cost) {
+		this.instLIRP = instLIRP;
+		this.lvl = lvl;
+		this.isDummy =  (start < 0 && lvl > 0);
+		this.start = start;
+		this.stops = stops;
+		this.initMembers();
+		this.travelTime = travelTime;
+		this.stopTime = Config.STOPPING_TIME * this.stops.length;
+		this.cost = cost;
+	}
+
 	/**
 	 * Creates a new Route Object with the same attributes as another one
 	 * @param routeToCopy 	The route from which to get the attributes
@@ -95,7 +119,10 @@ public class Route {
 		this.lvl = routeToCopy.lvl;
 		this.isDummy = routeToCopy.isDummy;
 		this.start = routeToCopy.start;
-		this.stops = new LinkedHashSet<Integer>(routeToCopy.stops);
+		/* The stops of a route are never modified, they can be shared with the copy */
+		this.stops = routeToCopy.stops;
+		this.members = routeToCopy.members;
+		this.hash = routeToCopy.hash;
 		this.stopTime = routeToCopy.stopTime;
 		this.travelTime = routeToCopy.travelTime;
 	}
@@ -108,7 +135,7 @@ public class Route {
 	 * @return	the length of the route
 	 */
 	public int getNbStops() {
-		return this.stops.size();
+		return this.stops.length;
 	}
 
 	/**
@@ -132,11 +159,19 @@ public class Route {
 	}
 	/**
 	 * 
-	 * @return	the array of locations corresponding to the stops
+	 * @return	the indices of the stops in the order in which they are visited (the array is shared and must not be modified)
 	 */
-	public LinkedHashSet<Integer> getStops() {
+	public int[] getStops() {
 		return this.stops;
 	}
+
+	/**
+	 * 
+	 * @return	the level served by the route
+	 */
+	public int getLvl() {
+		return this.lvl;
+	}
 	
 	/**
 	 * 
@@ -144,7 +179,7 @@ public class Route {
 	 * @return
 	 */
 	public Location getStop(int index) {
-		if(this.stops.contains(index)) {
+		if(this.containsStop(index)) {
 			if(this.lvl < this.instLIRP.getNbLevels() - 1 && index < this.instLIRP.getNbDepots(this.lvl))
 				return this.instLIRP.getDepot(this.lvl, index);
 			else if(this.lvl == this.instLIRP.getNbLevels() - 1 && index < this.instLIRP.getNbClients())
@@ -153,14 +188,6 @@ public class Route {
 		return null;
 	}
 
-	/**
-	 * 
-	 * @return	An iterator on the stops of the route
-	 */
-	public Iterator<Integer> stopIterator(){
-		return this.stops.iterator();
-	}
-	
 //	/**
 //	 * Get the position of a given stop
 //	 * @param stopIndex	the index of a location of interest along the route
@@ -186,12 +213,20 @@ public class Route {
 		return this.travelTime + this.stopTime;
 	}
 
+	/**
+	 * 
+	 * @return	the travel time along the route (without the time spent at the stops)
+	 */
+	public double getTravelTime() {
+		return this.travelTime;
+	}
+
 	/**
 	 * 
 	 * @return	the duration of the route given its stops sequence
 	 */
 	public int getMaxStop() {
-		int maxStop = this.stops.size();
+		int maxStop = this.stops.length;
 		for(int stopId : this.stops) {
 			if(stopId > maxStop) {
 				maxStop = stopId;
@@ -261,7 +296,23 @@ public class Route {
 	 * @return		true if the route contains the location, false otherwise
 	 */
 	public boolean containsStop(int index) {
-		return this.stops.contains(index);
+		int word = index >>> 6;
+		return index > -1 && word < this.members.length && (this.members[word] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Check if the Route object visits all the stops of another route (on the same level)
+	 * @param other	the route of interest
+	 * @return		true if every stop of other is also a stop of this route, false otherwise
+	 */
+	public boolean containsAllStops(Route other) {
+		if(other.members.length > this.members.length)
+			return false;
+		for(int word = 0; word < other.members.length; word++) {
+			if((other.members[word] & ~this.members[word]) != 0)
+				return false;
+		}
+		return true;
 	}
 	
 	/**
@@ -280,13 +331,14 @@ public class Route {
 			/* If the start of the route is the supplier */
 			inRoute =  (this.instLIRP.getSupplier() == loc);
 		}
-		Iterator<Integer> stopsIter = this.stops.iterator();
+		int stopPos = 0;
 		/* Loop through the stops and update inRoute if one corresponds to loc */
-		while(!inRoute && stopsIter.hasNext()) {
+		while(!inRoute && stopPos < this.stops.length) {
 			if(lvl < this.instLIRP.getNbLevels() - 1)
-				inRoute = (loc == this.instLIRP.getDepot(lvl, stopsIter.next()));
+				inRoute = (loc == this.instLIRP.getDepot(lvl, this.stops[stopPos]));
 			else
-				inRoute = (loc == this.instLIRP.getClient(stopsIter.next()));
+				inRoute = (loc == this.instLIRP.getClient(this.stops[stopPos]));
+			stopPos++;
 		}
 		return inRoute;
 	}
@@ -305,64 +357,63 @@ public class Route {
 		}
 
 		/* Create a new array to list the stops of the new Route object */
-		LinkedHashSet<Integer> newStops = new LinkedHashSet<Integer> (this.stops);
-		if(this.getLB(stopIndex) < Config.MAX_TIME_ROUTE) {
-			newStops.add(stopIndex);
-			return new Route(this.instLIRP, this.lvl, this.start, newStops);
-		}
-		else {
-			Route fakeRoute = new Route(this.instLIRP, this.lvl, this.start, stopIndex); 
-			fakeRoute.stops.addAll(this.stops);
-			fakeRoute.travelTime = this.computeDuration(fakeRoute.getStops());
-			fakeRoute.stopTime += this.stopTime;
-			return fakeRoute;
-		}
+		int[] newStops = Arrays.copyOf(this.stops, this.stops.length + 1);
+		newStops[this.stops.length] = stopIndex;
+		/* If the route cannot be valid, do not spend time sequencing its stops */
+		return new Route(this.instLIRP, this.lvl, this.start, newStops, this.getLB(stopIndex) < Config.MAX_TIME_ROUTE);
 	}
 
 	/**
-	 * Compute the best permutation of the stops to minimize the cost of the route (brute force)
-	 * @param partialPermutation	the current permutation of the stops in the route
-	 * @param indicesNotInRoute	the indices that have not been included in the route yet
-	 * @return
+	 * Check if a stop may be added to the route without exceeding the maximum duration, using a lower bound on the duration of the extended route
+	 * @param stopIndex	the index of the stop to add
+	 * @return			false if the extended route is certainly too long, true otherwise
 	 */
-	private LinkedHashSet<Integer> bruteForceFindBestRoute(ArrayList<Integer> partialPermutation, ArrayList<Integer> indicesNotInRoute)
-	{
-		/* Create a candidate for best route starting with the stops in r */
-		LinkedHashSet<Integer> bestRoute = new LinkedHashSet<Integer>(partialPermutation);
-		/* Add all the remaining stops to the candidate as they appear in the stopsNotInRoute */
-		bestRoute.addAll(indicesNotInRoute);
-		double bestCost = computeDuration(bestRoute);
-
-		/* If the start of the route is already greater than the maximum time allowed, 
-		 stop computations and return the current candidate */
-		if(computeDuration(partialPermutation) + Config.STOPPING_TIME * partialPermutation.size() > Config.MAX_TIME_ROUTE)
-			return bestRoute;
-
-		/* If there are stops that are not included in the route, try to add them one by one */
-		if(!indicesNotInRoute.isEmpty()) {
-			int nextStop = 0;
-			/* Loop through the possible next stops along the route */
-			while(nextStop < indicesNotInRoute.size()) {
-				int justRemoved = indicesNotInRoute.remove(0);
-				ArrayList<Integer> newPartialPermutation = new ArrayList<Integer>(partialPermutation);
-				newPartialPermutation.add(justRemoved);
-
-				/* Compute the best remaining route */
-				LinkedHashSet<Integer> permutationCandidate = bruteForceFindBestRoute(newPartialPermutation, indicesNotInRoute);
-				double costCandidate = computeDuration(permutationCandidate) + Config.STOPPING_TIME * permutationCandidate.size();
-				/* Compare its cost with the current best cost and update the best route if necessary */
-				if(costCandidate < Config.MAX_TIME_ROUTE && costCandidate < bestCost) {
-					bestRoute = permutationCandidate;
-					bestCost = costCandidate;
-				}
-				/* Replace the stop that has just been extracted at the end of the list */
-				indicesNotInRoute.add(justRemoved);
-				nextStop++;
+	public boolean mayExtend(int stopIndex) {
+		return this.getLB(stopIndex) < Config.MAX_TIME_ROUTE + Config.EPSILON;
+	}
+
+	/**
+	 * Compute the best permutation of the stops to minimize the duration of the route (dynamic programming over the subsets of stops)
+	 * @param stopsIndices	the indices of the stops to sequence
+	 * @return				the stops indices in the order in which they are visited on the best route
+	 */
+	private int[] findBestRoute(int[] stopsIndices) {
+		/* Nodes of the tour: the start of the route first, then the stops in their original order */
+		int nbNodes = stopsIndices.length + 1;
+		int[] nodes = new int[nbNodes];
+		nodes[0] = this.getStartNode();
+		for(int stopPos = 0; stopPos < stopsIndices.length; stopPos++) {
+			nodes[stopPos + 1] = this.instLIRP.getNodeIndex(this.lvl, stopsIndices[stopPos]);
+		}
+
+		/* Flat matrix of the travel times between every pair of nodes, read from the instance */
+		double[] times = new double[nbNodes * nbNodes];
+		for(int i = 0; i < nbNodes; i++) {
+			for(int j = 0; j < nbNodes; j++) {
+				times[i * nbNodes + j] = this.instLIRP.getTravelTime(nodes[i], nodes[j]);
 			}
 		}
+
+		int[] bestOrder = new int[nbNodes - 1];
+		HeldKarp.findBestTour(times, nbNodes, bestOrder);
+
+		int[] bestRoute = new int[stopsIndices.length];
+		for(int stopPos = 0; stopPos < bestOrder.length; stopPos++) {
+			bestRoute[stopPos] = stopsIndices[bestOrder[stopPos] - 1];
+		}
 		return bestRoute;
 	}
 
+	/**
+	 * 
+	 * @return	the index of the start of the route in the travel times matrix of the instance (the supplier for dummy routes)
+	 */
+	private int getStartNode() {
+		if(this.start < 0)
+			return this.instLIRP.getNodeIndex(-1, 0);
+		return this.instLIRP.getNodeIndex(this.lvl - 1, this.start);
+	}
+
 	/**
 	 * Compute a lower bound if a new stop is added to the current set of stops
 	 * @param newStop	the new stop to add to the route
@@ -371,13 +422,12 @@ public class Route {
 	private double getLB(int newStop) {
 		/* Initialize the lower bound to the cumulative duration of the stops */
 		double travelDuration = this.travelTime;
-		Location newLoc = (this.start < 0) ? this.instLIRP.getDepot(0, newStop):this.instLIRP.getClient(newStop);
+		int startNode = this.getStartNode();
+		int newNode = this.instLIRP.getNodeIndex(this.lvl, newStop);
 
-		Iterator<Integer> stop1 = this.stops.iterator();
-		while(stop1.hasNext()) {
-			int stop1Index = stop1.next();
-			Location loc1 = (this.lvl < this.instLIRP.getNbLevels() - 1) ? this.instLIRP.getDepot(this.lvl, stop1Index) : this.instLIRP.getClient(stop1Index);
-			travelDuration = Math.max((this.getStart().getDistance(loc1) + this.getStart().getDistance(newLoc) + loc1.getDistance(newLoc)) / Config.AVG_SPEED, travelDuration);
+		for(int stop1 : this.stops) {
+			int node1 = this.instLIRP.getNodeIndex(this.lvl, stop1);
+			travelDuration = Math.max(this.instLIRP.getTravelTime(startNode, node1) + this.instLIRP.getTravelTime(startNode, newNode) + this.instLIRP.getTravelTime(node1, newNode), travelDuration);
 		}
 
 		return this.stopTime + Config.STOPPING_TIME + travelDuration;
@@ -388,51 +438,66 @@ public class Route {
 	 * @param stopsIndices	the permutation of the stops
 	 * @return				the cost incurred by the sequence stopsIndices
 	 */
-	private double computeDuration(Collection<Integer> stopsIndices) {
+	private double computeDuration(int[] stopsIndices) {
 		// Start with a time of 0 for the route
 		double travelTime = 0;
 		// Set the current stop at the starting point
-		Location currentStop = this.getStart();
-
-		Location nextStop;
-		Iterator<Integer> indexIterator = stopsIndices.iterator();
-		// Iterate through the indices of the stops and increment the cost with the time necessary to reach the next stop and the average time spent at the stop 
-		while (indexIterator.hasNext()) {
-			nextStop = (this.start < 0) ? this.instLIRP.getDepot(0, indexIterator.next()):this.instLIRP.getClient(indexIterator.next());
-			travelTime += currentStop.getDistance(nextStop) / Config.AVG_SPEED;
-			currentStop = nextStop;
+		int startNode = this.getStartNode();
+		int currentNode = startNode;
+
+		// Iterate through the indices of the stops and increment the cost with the time necessary to reach the next stop
+		for(int stopIndex : stopsIndices) {
+			int nextNode = this.instLIRP.getNodeIndex(this.lvl, stopIndex);
+			travelTime += this.instLIRP.getTravelTime(currentNode, nextNode);
+			currentNode = nextNode;
 		}
 		// Add the time to return to the starting point of the route
-		travelTime += currentStop.getDistance(this.getStart()) / Config.AVG_SPEED;
+		travelTime += this.instLIRP.getTravelTime(currentNode, startNode);
 
 		return travelTime;
 	}
 	
 	/**
-	 * Compute the cost of the route associated with a given permutation
-	 * @param stopsIndices	the permutation of the stops
-	 * @return				the cost incurred by the sequence stopsIndices
+	 * Compute the travel time of the route along its current sequence of stops
+	 * @return	the travel time incurred by the stops of the route in their current order
 	 */
 	private double computeTravelTime() {
-		/* Start with a time of 0 for the route */
-		double travelTime = 0;
-		/* Set the current stop at the starting point */
-		Location currentStop = this.getStart();
-
-		Location nextStop;
-		Iterator<Integer> indexIterator = this.stops.iterator();
-		/* Iterate through the indices of the stops and increment the cost with the time necessary to reach the next stop and the average time spent at the stop */
-		while (indexIterator.hasNext()) {
-			nextStop = this.instLIRP.getClient(indexIterator.next());
-			travelTime += currentStop.getDistance(nextStop) / Config.AVG_SPEED;
-			currentStop = nextStop;
+		return this.computeDuration(this.stops);
+	}
+	
+	/**
+	 * Fill the bitset of the locations visited by the route and compute its hash code
+	 */
+	private void initMembers() {
+		int maxStop = 0;
+		for(int stopIndex : this.stops) {
+			maxStop = Math.max(maxStop, stopIndex);
 		}
-		/* Add the time to return to the starting point of the route */
-		travelTime += currentStop.getDistance(this.getStart()) / Config.AVG_SPEED;
+		this.members = new long[(maxStop >>> 6) + 1];
+		for(int stopIndex : this.stops) {
+			this.members[stopIndex >>> 6] |= 1L << stopIndex;
+		}
+		this.hash = 31 * (31 * this.lvl + this.start) + Arrays.hashCode(this.members);
+	}
 
-		return travelTime;
+	/**
+	 * Two routes are equal if they serve the same level from the same start and visit the same set of stops
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj)
+			return true;
+		if(!(obj instanceof Route))
+			return false;
+		Route other = (Route) obj;
+		return this.hash == other.hash && this.lvl == other.lvl && this.start == other.start && Arrays.equals(this.members, other.members);
 	}
-	
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
 	/**
 	 * 
 	 * @return	a JSON object describing the Route object
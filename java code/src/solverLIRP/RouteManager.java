@@ -4,9 +4,19 @@
 package solverLIRP;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -24,6 +34,13 @@ public class RouteManager {
 	private HashMap<Integer, RouteMap> routes; 	// A route is referenced with its level (0 : supplier-depot, 1 : depot-client)
 	// For a given level, routes are ordered according to their number of stops
 	private int[] nbRoutesLvl;													// Total number of routes at each level (0: Supplier to depots, 1: Depots to clients)
+	private long[] nbCandidatesLvl;												// Number of extensions of a route by one stop examined at each level
+	private long[] nbPrunedLvl;													// Number of extensions rejected by the lower bound on their duration at each level
+	private RoutePoolFile pool;													// The file from which the multi-stops routes are read (null if they are generated)
+	private boolean relocated;													// True if some sites of the instance were relocated to be reachable from the upper level
+	private boolean streaming;													// If true, the multi-stops routes are not stored and are generated again each time they are iterated over
+	private HashMap<Integer, HashMap<Integer, Integer>> nbStreamedRoutes;		// The number of streamed routes of each level and number of stops, once they have been counted
+	private ExecutorService genPool;											// Pool of threads used to extend the routes in parallel (null if the generation is sequential)
 
 	/**
 	 * Create a RouteManager object from an instance and the type of model under investigation
@@ -36,8 +53,12 @@ public class RouteManager {
 
 		/* Create HashMaps to store the sets of routes at each level */
 		this.nbRoutesLvl = new int[this.instLIRP.getNbLevels()];
+		this.nbCandidatesLvl = new long[this.instLIRP.getNbLevels()];
+		this.nbPrunedLvl = new long[this.instLIRP.getNbLevels()];
+		this.nbStreamedRoutes = new HashMap<Integer, HashMap<Integer, Integer>>();
 		for(int lvl = 0; lvl < nbRoutesLvl.length; lvl++) {
 			this.routes.put(lvl, new RouteMap());
+			this.nbStreamedRoutes.put(lvl, new HashMap<Integer, Integer>());
 			this.nbRoutesLvl[lvl] = 0;
 		}
 	}
@@ -49,11 +70,34 @@ public class RouteManager {
 	 * @throws IOException
 	 */
 	public void initialize(boolean onlyDirect) throws IOException {
+		this.initialize(onlyDirect, false);
+	}
+
+	/**
+	 * Create the direct routes of the instance and, unless they are streamed, the multi-stops ones
+	 * @param onlyDirect	If we only want to generate direct routes and modify instLIRP so that all clients are reachable
+	 * @param streaming		If true, only the direct routes are stored and the multi-stops routes are generated on demand by the route iterators
+	 * @throws IOException
+	 */
+	public void initialize(boolean onlyDirect, boolean streaming) throws IOException {
 		this.populateDirect();
-		if(!onlyDirect) {
-			/* Populate loops at all levels from the existing direct routes */
-			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
-				this.populateLoops(lvl, 1);
+		this.streaming = streaming && !onlyDirect;
+		if(!onlyDirect && !streaming) {
+			/* The parents of a given number of stops are extended in parallel if several threads are allowed */
+			if(Config.GEN_THREADS > 1)
+				this.genPool = Executors.newFixedThreadPool(Config.GEN_THREADS);
+			try {
+				/* Populate loops at all levels from the existing direct routes */
+				for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+					this.populateLoops(lvl, 1);
+					System.out.println("Level " + lvl + ": " + this.nbCandidatesLvl[lvl] + " route extensions examined, " + this.nbPrunedLvl[lvl] + " pruned by the lower bound.");
+				}
+			}
+			finally {
+				if(this.genPool != null) {
+					this.genPool.shutdown();
+					this.genPool = null;
+				}
 			}
 		}
 	}
@@ -70,22 +114,102 @@ public class RouteManager {
 	}
 
 	/**
-	 * Return a set of multi-stops routes for each level of the network
+	 * Load the routes from a route pool file instead of generating them. Only the direct routes are decoded, 
+	 * the multi-stops routes are read from the file when they are iterated over.
+	 * @param fileName	the name of the route pool file
+	 * @return			true if the routes were loaded, false if the file does not exist or does not correspond to the instance
+	 * @throws IOException
+	 */
+	public boolean load(String fileName) throws IOException {
+		return this.load(fileName, true);
+	}
+
+	/**
+	 * Load the routes from a route pool file instead of generating them
+	 * @param fileName	the name of the route pool file
+	 * @param checkID	if false, the file may have been created for another instance with the same data (the route parameters and
+	 * 					the number of locations are still checked)
+	 * @return			true if the routes were loaded, false if the file does not exist or does not correspond to the instance
+	 * @throws IOException
+	 */
+	public boolean load(String fileName, boolean checkID) throws IOException {
+		RoutePoolFile poolFile = RoutePoolFile.open(this.instLIRP, fileName, checkID);
+		if(poolFile == null)
+			return false;
+		this.pool = poolFile;
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			RouteSet directLvl = new RouteSet();
+			Iterator<Route> rIter = this.pool.iterator(lvl, 1);
+			while(rIter.hasNext()) {
+				directLvl.add(rIter.next());
+			}
+			this.routes.get(lvl).put(1, directLvl);
+			this.nbRoutesLvl[lvl] = 0;
+			for(int nbStops = 1; this.pool.getNbRoutes(lvl, nbStops) > 0; nbStops++) {
+				this.nbRoutesLvl[lvl] += this.pool.getNbRoutes(lvl, nbStops);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @return	true if some sites of the instance were relocated while generating the direct routes
+	 */
+	public boolean hasRelocatedSites() {
+		return this.relocated;
+	}
+
+	/**
+	 * 
+	 * @return	true if the multi-stops routes are not stored, but generated on demand or read from a route pool file
+	 */
+	public boolean isStreaming() {
+		return this.streaming || this.pool != null;
+	}
+
+	/**
+	 * Return a set of multi-stops routes for each level of the network. All the routes are stored in the sets returned, even if
+	 * they are streamed: only the filtered version of this method keeps the memory footprint of the streaming.
 	 * @param rm		The RouteManager object containing the routes for the instance
 	 * @param withLoops	An array indicating for each level if multi-stops routes are considered of not
 	 * @return			A HashMap containing the multi-stops routes at every level of the network
 	 */
 	public RouteMap getAllRoutes(boolean[] withLoops){
-		RouteMap setOfRoutes = new RouteMap(this.getAllDirects());
+		try {
+			return this.getAllRoutes(withLoops, null, null);
+		}
+		catch (IOException ioe) {
+			System.out.println("ERR while collecting the routes of the instance");
+			System.out.println(ioe.getMessage());
+			System.exit(1);
+		}
+		return null;
+	}
+
+	/**
+	 * Return the routes of each level of the network that are compatible with an allocation of the locations to the upper level.
+	 * The routes are filtered as they are enumerated, so that the rejected ones are never stored when the routes are streamed.
+	 * Without a LocManager, all the routes are stored.
+	 * @param withLoops	An array indicating for each level if multi-stops routes are considered of not
+	 * @param lm		The LocManager object used to draw the allocation at each level (null to keep all the routes)
+	 * @param rnd		The random stream used to draw the allocations (ignored if lm is null)
+	 * @return			A RouteMap object containing the routes kept at every level of the network
+	 * @throws IOException
+	 */
+	public RouteMap getAllRoutes(boolean[] withLoops, LocManager lm, SplittableRandom rnd) throws IOException {
+		RouteMap setOfRoutes = new RouteMap();
 		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
-			if(withLoops[lvl]) {
+			Iterator<Route> rIter = withLoops[lvl] ? this.getRoutesIterator(lvl) : this.getRoutesIterator(lvl, 1);
+			if(lm == null) {
 				RouteSet lvlRoutes = new RouteSet();
-				int nbStops = 2;
-				while(this.getNbRoutesOfType(lvl, nbStops) > 0){
-					lvlRoutes.addAll(this.getAllRoutesOfType(lvl, nbStops));
-					nbStops++;
+				while(rIter.hasNext()) {
+					lvlRoutes.add(rIter.next());
 				}
-				setOfRoutes.get(lvl).addAll(lvlRoutes);
+				setOfRoutes.put(lvl, lvlRoutes);
+			}
+			else {
+				setOfRoutes.put(lvl, RouteMap.filterRoutes(rIter, lm, RouteMap.drawAllocation(lm, lvl, rnd)));
 			}
 		}
 		return setOfRoutes;
@@ -107,15 +231,14 @@ public class RouteManager {
 	
 	/**
 	 * 
-	 * @return	the ArrayList of routes from the supplier to the depots
+	 * @return	the ArrayList of routes from the supplier to the depots (stored, even if they are streamed)
 	 */
 	public RouteSet getAllRoutesOfLvl(int lvl) {
 		RouteSet setOfRoutes = new RouteSet();
 		if(lvl > -1 && lvl < this.instLIRP.getNbLevels()) {
-			int nbStops = 1;
-			while(this.routes.get(lvl).containsKey(nbStops)) {
-				setOfRoutes.addAll(this.routes.get(lvl).get(nbStops));
-				nbStops++;
+			Iterator<Route> rIter = this.getRoutesIterator(lvl);
+			while(rIter.hasNext()) {
+				setOfRoutes.add(rIter.next());
 			}
 		}
 		return setOfRoutes;
@@ -130,10 +253,106 @@ public class RouteManager {
 			if(this.routes.get(lvl).containsKey(nbStops)) {
 				return this.routes.get(lvl).get(nbStops).size();
 			}
+			if(this.pool != null) {
+				return this.pool.getNbRoutes(lvl, nbStops);
+			}
+			/* Streamed routes have to be enumerated to be counted, which is only done once */
+			Integer nbRoutes = this.nbStreamedRoutes.get(lvl).get(nbStops);
+			if(nbRoutes == null) {
+				nbRoutes = 0;
+				Iterator<Route> rIter = this.getRoutesIterator(lvl, nbStops);
+				while(rIter.hasNext()) {
+					rIter.next();
+					nbRoutes++;
+				}
+				this.nbStreamedRoutes.get(lvl).put(nbStops, nbRoutes);
+			}
+			return nbRoutes;
 		}
 		return 0;
 	}
 
+	/**
+	 * Get an iterator over the routes of a level with a given number of stops.
+	 * The routes are returned in the same order whether they are stored or streamed.
+	 * @param lvl		the level of interest
+	 * @param nbStops	the number of stops of the routes
+	 * @return			an iterator over the stored routes, or over routes read from the route pool file or generated on demand if the routes are streamed
+	 */
+	public Iterator<Route> getRoutesIterator(int lvl, int nbStops) {
+		if(lvl > -1 && lvl < this.instLIRP.getNbLevels()) {
+			if(this.routes.get(lvl).containsKey(nbStops)) {
+				return this.routes.get(lvl).get(nbStops).iterator();
+			}
+			if(this.pool != null) {
+				return this.pool.iterator(lvl, nbStops);
+			}
+			if(this.streaming && nbStops > 1) {
+				return new LoopIterator(lvl, nbStops);
+			}
+		}
+		return Collections.emptyIterator();
+	}
+
+	/**
+	 * Get an iterator over all the routes of a level, by increasing number of stops
+	 * @param lvl	the level of interest
+	 * @return		an iterator over the routes of the level, generated on demand if the routes are streamed
+	 */
+	public Iterator<Route> getRoutesIterator(int lvl) {
+		return new Iterator<Route>() {
+			private int nbStops = 1;
+			private Iterator<Route> rIter = getRoutesIterator(lvl, 1);
+
+			@Override
+			public boolean hasNext() {
+				/* There is no route with more stops once a number of stops has no route */
+				if(!this.rIter.hasNext() && this.nbStops > 0) {
+					this.nbStops++;
+					this.rIter = getRoutesIterator(lvl, this.nbStops);
+					if(!this.rIter.hasNext())
+						this.nbStops = 0;
+				}
+				return this.rIter.hasNext();
+			}
+
+			@Override
+			public Route next() {
+				if(!this.hasNext())
+					throw new NoSuchElementException();
+				return this.rIter.next();
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * @param lvl		the level of interest
+	 * @param nbStops	the number of stops of the routes
+	 * @return			an ordered Spliterator over the routes of a level with a given number of stops
+	 */
+	public Spliterator<Route> getRoutesSpliterator(int lvl, int nbStops) {
+		return Spliterators.spliteratorUnknownSize(this.getRoutesIterator(lvl, nbStops), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	/**
+	 * 
+	 * @param lvl	the level of interest
+	 * @return		the number of extensions of a route by one stop examined while generating the multi-stops routes of the level
+	 */
+	public long getNbCandidates(int lvl) {
+		return this.nbCandidatesLvl[lvl];
+	}
+
+	/**
+	 * 
+	 * @param lvl	the level of interest
+	 * @return		the number of extensions rejected by the lower bound on their duration, before sequencing their stops
+	 */
+	public long getNbPruned(int lvl) {
+		return this.nbPrunedLvl[lvl];
+	}
+
 	public Route getDummy(int lvl, int loc) {
 		if(lvl == 0 || lvl >= this.instLIRP.getNbLevels() || loc < 0 || loc > this.instLIRP.getNbLocations(lvl)) {
 			System.out.println("Impossible to get a dummy route for location " + loc + " in level " + lvl);
@@ -220,6 +439,7 @@ public class RouteManager {
 				}
 				/* Otherwise, re-position the site randomly and check if the new location is reachable from an upper site */
 				else {
+					this.relocated = true;
 					if(lvl == this.instLIRP.getNbLevels() - 1)
 						this.instLIRP.drawClient(sIndex);
 					else
@@ -243,33 +463,173 @@ public class RouteManager {
 		/* HashSet to store the loop routes with nbStops+1 stops at level lvl */
 		RouteSet loopsLvl = new RouteSet();
 
-		/* Fill an array list with the potential stop candidates to add to the loop routes */
-		int finalIndex = (lvl == this.instLIRP.getNbLevels() - 1) ? finalIndex = this.instLIRP.getNbClients() : this.instLIRP.getNbDepots(lvl);
-
-		/* If the stopping time is small enough, build the multi-stops routes for this instance */
-		/* Start from each of the existing direct routes */
-		for(Route startRoute : this.routes.get(lvl).get(nbStops)) {
-			/* If the route does not start from the dummy depot and it is possible to add a stop */
-			if(!startRoute.isDummy() && startRoute.getDuration() + Config.STOPPING_TIME < Config.MAX_TIME_ROUTE) {
-				/* Start at the maximum last possible stop */
-				int stopToAdd = finalIndex - 1;
-				int maxStop = startRoute.getMaxStop();
-				while(stopToAdd > maxStop) {
+		/* Potential stop candidates to add to the loop routes */
+		int[][] candidates = this.getCandidates(lvl, nbStops);
+
+		/* Start from each of the existing routes with nbStops stops */
+		Route[] startRoutes = this.routes.get(lvl).get(nbStops).toArray(new Route[0]);
+		if(this.genPool == null) {
+			long[] counts = new long[2];
+			loopsLvl.addAll(extendRoutes(startRoutes, 0, startRoutes.length, candidates, counts));
+			this.nbCandidatesLvl[lvl] += counts[0];
+			this.nbPrunedLvl[lvl] += counts[1];
+		}
+		else {
+			/* Split the starting routes into chunks (several per thread to balance the load) and extend each chunk in a separate task */
+			int nbChunks = Math.min(startRoutes.length, 4 * Config.GEN_THREADS);
+			ArrayList<Future<ArrayList<Route>>> chunks = new ArrayList<Future<ArrayList<Route>>>();
+			/* Each chunk counts its candidates and pruned extensions separately */
+			long[][] counts = new long[nbChunks][2];
+			for(int chunk = 0; chunk < nbChunks; chunk++) {
+				final int from = (int) ((long) chunk * startRoutes.length / nbChunks);
+				final int to = (int) ((long) (chunk + 1) * startRoutes.length / nbChunks);
+				final long[] chunkCounts = counts[chunk];
+				chunks.add(this.genPool.submit(() -> extendRoutes(startRoutes, from, to, candidates, chunkCounts)));
+			}
+			/* Collect the results in the order of the chunks, so that the routes are stored in the same order as in the sequential generation */
+			try {
+				for(int chunk = 0; chunk < nbChunks; chunk++) {
+					loopsLvl.addAll(chunks.get(chunk).get());
+					this.nbCandidatesLvl[lvl] += counts[chunk][0];
+					this.nbPrunedLvl[lvl] += counts[chunk][1];
+				}
+			}
+			catch (InterruptedException ie) {
+				System.out.println("ERR: interrupted while generating the routes with " + (nbStops + 1) + " stops at level " + lvl);
+				System.exit(1);
+			}
+			catch (ExecutionException ee) {
+				if(ee.getCause() instanceof IOException)
+					throw (IOException) ee.getCause();
+				System.out.println("ERR while generating the routes with " + (nbStops + 1) + " stops at level " + lvl);
+				System.out.println(ee.getCause());
+				System.exit(1);
+			}
+		}
+		this.nbRoutesLvl[lvl] += loopsLvl.size();
+
+		/* If some routes have been found for this number of stops, add it to the HashMap */
+		if(!loopsLvl.isEmpty()) {
+			this.routes.get(lvl).put(nbStops + 1, loopsLvl);
+			populateLoops(lvl, nbStops + 1);
+		}
+	}
+
+	/**
+	 * For each start of a level, fill an array with the potential stop candidates to add to the routes with a given number of stops:
+	 * a route with nbStops + 1 stops lasts at least twice the travel time between its start and any of its stops
+	 * @param lvl		the level of the routes
+	 * @param nbStops	the number of stops of the routes to extend
+	 * @return			for each start of the level (the supplier first, then the upper depots), the indices of the stops that may be added, in increasing order
+	 */
+	private int[][] getCandidates(int lvl, int nbStops) {
+		double radius = Math.max(0, Config.MAX_TIME_ROUTE + Config.EPSILON - (nbStops + 1) * Config.STOPPING_TIME) * Config.AVG_SPEED / 2;
+		int[][] candidates = new int[this.instLIRP.getNbDepots(lvl - 1) + 1][];
+		candidates[0] = this.instLIRP.getLocationsWithin(lvl, this.instLIRP.getSupplier(), radius);
+		for(int start = 0; start < this.instLIRP.getNbDepots(lvl - 1); start++) {
+			candidates[start + 1] = this.instLIRP.getLocationsWithin(lvl, this.instLIRP.getDepot(lvl - 1, start), radius);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Extend a range of routes with one additional stop
+	 * @param startRoutes	the routes to extend
+	 * @param from			the index of the first route of the range (inclusive)
+	 * @param to			the index of the last route of the range (exclusive)
+	 * @param candidates	for each start of the level (the supplier first, then the upper depots), the indices of the stops that may be added, in increasing order
+	 * @param counts		array in which the number of extensions examined (counts[0]) and pruned (counts[1]) are accumulated
+	 * @return				the valid routes obtained, in the order in which they are generated
+	 * @throws IOException
+	 */
+	private static ArrayList<Route> extendRoutes(Route[] startRoutes, int from, int to, int[][] candidates, long[] counts) throws IOException {
+		ArrayList<Route> extendedRoutes = new ArrayList<Route>();
+		for(int rIndex = from; rIndex < to; rIndex++) {
+			extendRoute(startRoutes[rIndex], candidates, counts, extendedRoutes);
+		}
+		return extendedRoutes;
+	}
+
+	/**
+	 * Extend a route with one additional stop in every possible way
+	 * @param startRoute		the route to extend
+	 * @param candidates		for each start of the level (the supplier first, then the upper depots), the indices of the stops that may be added, in increasing order
+	 * @param counts			array in which the number of extensions examined (counts[0]) and pruned (counts[1]) are accumulated
+	 * @param extendedRoutes	the list to which the valid routes obtained are appended
+	 * @throws IOException
+	 */
+	private static void extendRoute(Route startRoute, int[][] candidates, long[] counts, ArrayList<Route> extendedRoutes) throws IOException {
+		/* If the route does not start from the dummy depot and it is possible to add a stop */
+		if(!startRoute.isDummy() && startRoute.getDuration() + Config.STOPPING_TIME < Config.MAX_TIME_ROUTE) {
+			/* Start at the maximum last possible stop among the candidates close enough to the start of the route */
+			int[] stopsToAdd = candidates[startRoute.getStartIndex() + 1];
+			int maxStop = startRoute.getMaxStop();
+			for(int candidate = stopsToAdd.length - 1; candidate > -1 && stopsToAdd[candidate] > maxStop; candidate--) {
+				int stopToAdd = stopsToAdd[candidate];
+				counts[0]++;
+				/* Skip the stop if the lower bound on the duration already exceeds the maximum, without building and sequencing the route */
+				if(!startRoute.mayExtend(stopToAdd)) {
+					counts[1]++;
+				}
+				else {
 					/* Create a new route candidate by adding the stop to the current route */
 					Route routeCandidate = startRoute.extend(stopToAdd);
 					/* Add it to the set of possible routes if it is valid */
 					if(routeCandidate.isValid()) {
-						loopsLvl.add(routeCandidate);
-						this.nbRoutesLvl[lvl] += 1;
+						extendedRoutes.add(routeCandidate);
 					}
-					stopToAdd--;
 				}
 			}
 		}
-		/* If some routes have been found for this number of stops, add it to the HashMap */
-		if(!loopsLvl.isEmpty()) {
-			this.routes.get(lvl).put(nbStops + 1, loopsLvl);
-			populateLoops(lvl, nbStops + 1);
+	}
+
+	/**
+	 * Iterator generating on demand the routes of a level with a given number of stops, by extending the routes with one stop less
+	 * as they are themselves generated. Only the extensions of the current route of each number of stops are held in memory, 
+	 * and the routes are returned in the same order as they are stored by populateLoops.
+	 */
+	private class LoopIterator implements Iterator<Route> {
+		private int lvl;
+		private int nbStops;
+		private Iterator<Route> startRoutes;		// The routes with nbStops - 1 stops to extend
+		private int[][] candidates;					// The stops that may be added to the routes, for each start
+		private ArrayList<Route> extendedRoutes;	// The extensions of the last route obtained from startRoutes
+		private int nextRoute;						// The position in extendedRoutes of the next route to return
+		private long[] counts;
+
+		private LoopIterator(int lvl, int nbStops) {
+			this.lvl = lvl;
+			this.nbStops = nbStops;
+			this.startRoutes = getRoutesIterator(lvl, nbStops - 1);
+			this.candidates = getCandidates(lvl, nbStops - 1);
+			this.extendedRoutes = new ArrayList<Route>();
+			this.nextRoute = 0;
+			this.counts = new long[2];
+		}
+
+		@Override
+		public boolean hasNext() {
+			/* Extend the next starting routes until some extensions are found or all the starting routes are used */
+			while(this.nextRoute == this.extendedRoutes.size() && this.startRoutes.hasNext()) {
+				this.extendedRoutes.clear();
+				this.nextRoute = 0;
+				try {
+					extendRoute(this.startRoutes.next(), this.candidates, this.counts, this.extendedRoutes);
+				}
+				catch (IOException ioe) {
+					System.out.println("ERR while generating the routes with " + this.nbStops + " stops at level " + this.lvl);
+					System.out.println(ioe.getMessage());
+					System.exit(1);
+				}
+			}
+			return this.nextRoute < this.extendedRoutes.size();
+		}
+
+		@Override
+		public Route next() {
+			if(!this.hasNext())
+				throw new NoSuchElementException();
+			return this.extendedRoutes.get(this.nextRoute++);
 		}
 	}
 
@@ -313,4 +673,19 @@ public class RouteManager {
 		System.out.println(filename);
 		JSONParser.writeJSONToFile(this.getJSONRM(), filename);
 	}
+
+	/**
+	 * Write the routes to a route pool file that can be loaded in a later run on the same instance
+	 * @param filename	the destination file
+	 * @throws IOException
+	 */
+	public void writeToBinaryFile(String filename) throws IOException {
+		/* The relocated sites are not saved in the instance file, the routes would not match the instance when it is read again */
+		if(this.relocated) {
+			System.out.println("Some sites were relocated to be reachable, the routes are not written to " + filename);
+			return;
+		}
+		System.out.println(filename);
+		RoutePoolFile.write(this, filename);
+	}
 }
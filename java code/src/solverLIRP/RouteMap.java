@@ -1,12 +1,13 @@
 package solverLIRP;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.SplittableRandom;
 
 import instanceManager.Location;
-import tools.Config;
 
 public class RouteMap extends HashMap<Integer, RouteSet>{
 
@@ -32,17 +33,10 @@ public class RouteMap extends HashMap<Integer, RouteSet>{
 	public void completeMap(RouteMap directMap) {
 		if(directMap.keySet().containsAll(this.keySet())) {
 			for(int lvl : this.keySet()) {
-				for(Route rDir : directMap.get(lvl)) {
-					Iterator<Route> rIter = this.get(lvl).iterator();
-					boolean reached = false;
-					while(!reached && rIter.hasNext()) {
-						reached = rIter.next().getStops().containsAll(rDir.getStops());
-					}
-					if(!reached) {
-						System.out.println("Location " + rDir.getStops().toString() + " at level " + lvl + " unreachable, adding it to the subset");
-						System.out.println("Direct route from DC " + rDir.getStart().toString() + " to client " + rDir.getStops().toString() + "added to the pool.");
-						this.get(lvl).add(rDir);
-					}
+				/* The coverage of the set gives the unreachable locations directly */
+				for(Route rDir : this.get(lvl).complete(RouteSet.indexDirects(directMap.get(lvl)))) {
+					System.out.println("Location " + Arrays.toString(rDir.getStops()) + " at level " + lvl + " unreachable, adding it to the subset");
+					System.out.println("Direct route from DC " + rDir.getStart().toString() + " to client " + Arrays.toString(rDir.getStops()) + "added to the pool.");
 				}
 			}
 		}
@@ -55,40 +49,62 @@ public class RouteMap extends HashMap<Integer, RouteSet>{
 	/**
 	 * Filter the routes that are available or not according to an allocation
 	 * @param lm			The LocManager object deciding which location is allocated to which DCs at the upper level
+	 * @param rnd			The random stream used to draw the allocation
 	 * @return				A RouteMap object containing only the filtered route, i.e. routes that stops only at locations allocated to its starting point
 	 * @throws IOException
 	 */
-	public RouteMap filterRoutes(LocManager lm) throws IOException {
+	public RouteMap filterRoutes(LocManager lm, SplittableRandom rnd) throws IOException {
 		if(lm == null) {
 			return this;
 		}
 		RouteMap filteredRoutes = new RouteMap();
 		for(int lvl : this.keySet()) {
-			/* Select a random number of depots among the depots available */
-			int maxNbDC = (int) Math.ceil(0.6 * (lm.getInstance().getNbLocations(lvl)));
-			HashMap<Location, HashSet<Location>> locAlloc = lm.assignLocations(Config.RAND.nextInt(maxNbDC) + 1);
-			RouteSet rFilter = new RouteSet();
+			filteredRoutes.put(lvl, filterRoutes(this.get(lvl).iterator(), lm, drawAllocation(lm, lvl, rnd)));
+		}
+		return filteredRoutes;
+	}
+
+	/**
+	 * Draw at random an allocation of the locations of a level to the sites of the upper level
+	 * @param lm	The LocManager object deciding which location is allocated to which DCs at the upper level
+	 * @param lvl	The level of interest
+	 * @param rnd	The random stream used to draw the allocation
+	 * @return		The set of locations of the level allocated to each selected site of the upper level
+	 * @throws IOException
+	 */
+	public static HashMap<Location, HashSet<Location>> drawAllocation(LocManager lm, int lvl, SplittableRandom rnd) throws IOException {
+		/* Select a random number of depots among the depots available */
+		int maxNbDC = (int) Math.ceil(0.6 * (lm.getInstance().getNbLocations(lvl)));
+		return lm.assignLocations(rnd.nextInt(maxNbDC) + 1, rnd);
+	}
+
+	/**
+	 * Keep the routes that only stop at locations allocated to their starting point
+	 * @param rIter		An iterator over the routes to filter
+	 * @param lm		The LocManager object deciding which location is allocated to which DCs at the upper level
+	 * @param locAlloc	The set of locations allocated to each selected site of the upper level
+	 * @return			A RouteSet object containing the routes kept, in the order of the iterator
+	 */
+	public static RouteSet filterRoutes(Iterator<Route> rIter, LocManager lm, HashMap<Location, HashSet<Location>> locAlloc) {
+		RouteSet rFilter = new RouteSet();
 
-			/* Loop through the routes and keep only the routes that start from the selected depots */
-			Iterator<Route> rIter = this.get(lvl).iterator();
-			while(rIter.hasNext()) {
-				Route currentRoute = rIter.next();
-				Location rStart = currentRoute.getStart();
-				if(rStart == lm.getInstance().getSupplier()) {
+		/* Loop through the routes and keep only the routes that start from the selected depots */
+		while(rIter.hasNext()) {
+			Route currentRoute = rIter.next();
+			Location rStart = currentRoute.getStart();
+			if(rStart == lm.getInstance().getSupplier()) {
+				rFilter.add(currentRoute);
+			}
+			else if(locAlloc.containsKey(rStart)) {
+				boolean allAlloc = true;
+				int[] stops = currentRoute.getStops();
+				for(int stopPos = 0; allAlloc && stopPos < stops.length; stopPos++)
+					allAlloc = locAlloc.get(rStart).contains(currentRoute.getStop(stops[stopPos]));
+				if(allAlloc) {
 					rFilter.add(currentRoute);
 				}
-				else if(locAlloc.containsKey(rStart)) {
-					boolean allAlloc = true;
-					Iterator<Integer> stopIter = currentRoute.stopIterator();
-					while(allAlloc && stopIter.hasNext())
-						allAlloc = locAlloc.get(rStart).contains(currentRoute.getStop(stopIter.next()));
-					if(allAlloc) {
-						rFilter.add(currentRoute);
-					}
-				}
 			}
-			filteredRoutes.put(lvl, rFilter);
 		}
-		return filteredRoutes;
+		return rFilter;
 	}
 }
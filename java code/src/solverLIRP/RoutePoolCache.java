@@ -0,0 +1,201 @@
+package solverLIRP;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import instanceManager.Depot;
+import instanceManager.Instance;
+import instanceManager.Location;
+import tools.Config;
+
+/**
+ * Directory of route pool files shared between runs. Each pool is stored under a fingerprint of the content of the instance
+ * and of the route parameters, so that a pool is reused for any run on the same data whatever the name of the instance file,
+ * and is never reused if anything that determines the routes has changed. When the total size of the pools exceeds a bound,
+ * the least recently used ones are deleted.
+ * @author gmas
+ *
+ */
+public class RoutePoolCache {
+
+	private static final String EXTENSION = ".bin";
+
+	private File cacheDir;		// The directory containing the route pool files
+	private long maxSize;		// Maximum total size of the files of the cache, in bytes
+
+	/**
+	 * Create a RoutePoolCache object on a directory (created if it does not exist)
+	 * @param cacheDir	the directory containing the route pool files
+	 * @param maxSize	the maximum total size of the files of the cache, in bytes
+	 * @throws IOException
+	 */
+	public RoutePoolCache(String cacheDir, long maxSize) throws IOException {
+		this.cacheDir = new File(cacheDir);
+		if(!this.cacheDir.isDirectory() && !this.cacheDir.mkdirs()) {
+			throw new IOException("Impossible to create the route pool cache directory " + cacheDir);
+		}
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Compute the fingerprint of an instance: a SHA-256 hash of the coordinates of all its sites, of its fleet, of the costs of its depots
+	 * and of the route parameters. It must be computed before the routes are generated, as some sites may be relocated during the generation.
+	 * @param instLIRP	the instance of interest
+	 * @return			the fingerprint of the instance, as a string of hexadecimal digits
+	 */
+	public static String getFingerprint(Instance instLIRP) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = ByteBuffer.allocate(8 * Double.BYTES);
+
+			/* Route parameters */
+			buffer.putDouble(Config.AVG_SPEED);
+			buffer.putDouble(Config.STOPPING_TIME);
+			buffer.putDouble(Config.MAX_TIME_ROUTE);
+			buffer.putDouble(Config.FIXED_COST_ROUTE);
+			buffer.putDouble(Config.COST_KM);
+			update(digest, buffer);
+
+			/* Fleet and sites of each level, starting with the supplier */
+			update(digest, buffer.putInt(instLIRP.getNbLevels()));
+			update(digest, putCoords(buffer, instLIRP.getSupplier()));
+			for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+				update(digest, buffer.putDouble(instLIRP.getCapacityVehicle(lvl)).putInt(instLIRP.getNbVehicles(lvl)).putInt(instLIRP.getNbLocations(lvl)));
+				for(int loc = 0; loc < instLIRP.getNbLocations(lvl); loc++) {
+					if(lvl < instLIRP.getNbLevels() - 1) {
+						Depot depot = instLIRP.getDepot(lvl, loc);
+						update(digest, putCoords(buffer, depot).putDouble(depot.getOrderingCost()).putDouble(depot.getFixedCost()));
+					}
+					else {
+						update(digest, putCoords(buffer, instLIRP.getClient(loc)));
+					}
+				}
+			}
+
+			StringBuilder fingerprint = new StringBuilder();
+			for(byte b : digest.digest()) {
+				fingerprint.append(String.format("%02x", b));
+			}
+			return fingerprint.toString();
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			System.out.println("ERR: SHA-256 is not available to compute the fingerprint of the instance");
+			System.exit(1);
+		}
+		return null;
+	}
+
+	/**
+	 * Load the routes of an instance from the cache
+	 * @param rm			the RouteManager object in which the routes are loaded
+	 * @param fingerprint	the fingerprint of the instance of rm
+	 * @return				true if the cache contains a pool for this fingerprint and it was loaded, false otherwise
+	 * @throws IOException
+	 */
+	public boolean load(RouteManager rm, String fingerprint) throws IOException {
+		File poolFile = this.getFile(fingerprint);
+		/* The fingerprint already identifies the data of the instance, which may have been saved with another ID */
+		if(!poolFile.isFile() || !rm.load(poolFile.getPath(), false))
+			return false;
+		/* Mark the pool as recently used */
+		poolFile.setLastModified(System.currentTimeMillis());
+		System.out.println("Routes loaded from the cache file " + poolFile.getPath());
+		return true;
+	}
+
+	/**
+	 * Store the routes of an instance in the cache, then evict the least recently used pools if the cache is too large
+	 * @param rm			the RouteManager object containing the routes
+	 * @param fingerprint	the fingerprint of the instance of rm, computed before the routes were generated
+	 * @throws IOException
+	 */
+	public void store(RouteManager rm, String fingerprint) throws IOException {
+		/* The relocated sites are not saved in the instance file, the routes would not match the instance when it is read again */
+		if(rm.hasRelocatedSites()) {
+			System.out.println("Some sites were relocated to be reachable, the routes are not stored in the cache");
+			return;
+		}
+		File poolFile = this.getFile(fingerprint);
+		/* Write to a temporary file first, so that another run never reads a pool that is being written */
+		File tmpFile = new File(this.cacheDir, fingerprint + "-" + System.nanoTime() + ".tmp");
+		try {
+			RoutePoolFile.write(rm, tmpFile.getPath());
+			try {
+				Files.move(tmpFile.toPath(), poolFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException amnse) {
+				Files.move(tmpFile.toPath(), poolFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			tmpFile.delete();
+		}
+		System.out.println("Routes stored in the cache file " + poolFile.getPath());
+		this.evict(poolFile);
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 *
+	 * @param fingerprint	the fingerprint of an instance
+	 * @return				the file of the cache corresponding to the fingerprint
+	 */
+	private File getFile(String fingerprint) {
+		return new File(this.cacheDir, fingerprint + EXTENSION);
+	}
+
+	/**
+	 * Delete the least recently used pools until the total size of the cache is below its maximum size
+	 * @param keptFile	a file that must not be deleted, even if it exceeds the maximum size on its own
+	 */
+	private void evict(File keptFile) {
+		File[] poolFiles = this.cacheDir.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if(poolFiles == null)
+			return;
+		long totalSize = 0;
+		for(File poolFile : poolFiles) {
+			totalSize += poolFile.length();
+		}
+		Arrays.sort(poolFiles, Comparator.comparingLong(File::lastModified));
+		for(int fileIndex = 0; totalSize > this.maxSize && fileIndex < poolFiles.length; fileIndex++) {
+			if(!poolFiles[fileIndex].equals(keptFile)) {
+				long fileSize = poolFiles[fileIndex].length();
+				if(poolFiles[fileIndex].delete()) {
+					System.out.println("Route pool " + poolFiles[fileIndex].getName() + " evicted from the cache");
+					totalSize -= fileSize;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Put the coordinates of a location in a buffer
+	 * @param buffer	the buffer to fill
+	 * @param loc		the location of interest
+	 * @return			the buffer
+	 */
+	private static ByteBuffer putCoords(ByteBuffer buffer, Location loc) {
+		return buffer.putDouble(loc.getCoordinates().getX()).putDouble(loc.getCoordinates().getY());
+	}
+
+	/**
+	 * Add the content of a buffer to a digest and clear the buffer
+	 * @param digest	the digest to update
+	 * @param buffer	the buffer containing the data
+	 */
+	private static void update(MessageDigest digest, ByteBuffer buffer) {
+		buffer.flip();
+		digest.update(buffer);
+		buffer.clear();
+	}
+}
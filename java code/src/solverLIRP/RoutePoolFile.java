@@ -0,0 +1,301 @@
+package solverLIRP;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import instanceManager.Instance;
+import tools.Config;
+
+/**
+ * Binary file storing the pool of routes of an instance, and reader giving access to the routes of the file without loading them.
+ * The file starts with a header describing the instance and the route parameters used to generate the pool, followed by one
+ * section per level and number of stops. A section is made of its level, number of stops and number of routes, followed by
+ * fixed-size records: the start of the route, its stops in the order in which they are visited, its travel time and its cost.
+ * The sections are memory-mapped, and a route is only decoded when it is accessed.
+ * @author gmas
+ *
+ */
+public class RoutePoolFile {
+
+	private static final int MAGIC = 0x4C525046;			// "LRPF"
+	private static final int VERSION = 1;
+	private static final int SECTION_HEADER = 3 * Integer.BYTES;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private Instance instLIRP;								// The instance to which the routes apply
+	private ArrayList<ArrayList<MappedByteBuffer>> sections;	// The records of the routes of each level, indexed by their number of stops minus one
+
+	/**
+	 * Map the sections of a route pool file
+	 * @param instLIRP	the instance to which the routes apply
+	 * @param sections	the records of each level and number of stops
+	 */
+	private RoutePoolFile(Instance instLIRP, ArrayList<ArrayList<MappedByteBuffer>> sections) {
+		this.instLIRP = instLIRP;
+		this.sections = sections;
+	}
+
+	/*
+	 * ACCESSORS
+	 */
+	/**
+	 *
+	 * @param lvl		the level of interest
+	 * @param nbStops	the number of stops of the routes
+	 * @return			the number of routes of the level with nbStops stops stored in the file
+	 */
+	public int getNbRoutes(int lvl, int nbStops) {
+		if(lvl < 0 || lvl >= this.sections.size() || nbStops < 1 || nbStops > this.sections.get(lvl).size())
+			return 0;
+		return this.sections.get(lvl).get(nbStops - 1).capacity() / getRecordSize(nbStops);
+	}
+
+	/**
+	 * Decode a route of the file
+	 * @param lvl		the level of the route
+	 * @param nbStops	the number of stops of the route
+	 * @param index		the position of the route in its section
+	 * @return			a new Route object with the attributes stored in the file
+	 */
+	public Route getRoute(int lvl, int nbStops, int index) {
+		MappedByteBuffer section = this.sections.get(lvl).get(nbStops - 1);
+		/* Absolute reads only, so that several threads may decode routes from the same section */
+		int offset = index * getRecordSize(nbStops);
+		int start = section.getInt(offset);
+		int[] stops = new int[nbStops];
+		for(int stopPos = 0; stopPos < nbStops; stopPos++) {
+			stops[stopPos] = section.getInt(offset + (stopPos + 1) * Integer.BYTES);
+		}
+		double travelTime = section.getDouble(offset + (nbStops + 1) * Integer.BYTES);
+		double cost = section.getDouble(offset + (nbStops + 1) * Integer.BYTES + Double.BYTES);
+		return new Route(this.instLIRP, lvl, start, stops, travelTime, cost);
+	}
+
+	/**
+	 *
+	 * @param lvl		the level of interest
+	 * @param nbStops	the number of stops of the routes
+	 * @return			an iterator decoding the routes of the level with nbStops stops in the order in which they are stored
+	 */
+	public Iterator<Route> iterator(int lvl, int nbStops) {
+		int nbRoutes = this.getNbRoutes(lvl, nbStops);
+		return new Iterator<Route>() {
+			private int nextRoute = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.nextRoute < nbRoutes;
+			}
+
+			@Override
+			public Route next() {
+				if(!this.hasNext())
+					throw new NoSuchElementException();
+				return getRoute(lvl, nbStops, this.nextRoute++);
+			}
+		};
+	}
+
+	/*
+	 * READING AND WRITING
+	 */
+	/**
+	 * Open a route pool file and map its sections
+	 * @param instLIRP	the instance to which the routes apply
+	 * @param fileName	the name of the file
+	 * @return			a RoutePoolFile object giving access to the routes of the file, or null if the file does not exist or was created for another instance or other route parameters
+	 * @throws IOException
+	 */
+	public static RoutePoolFile open(Instance instLIRP, String fileName) throws IOException {
+		return open(instLIRP, fileName, true);
+	}
+
+	/**
+	 * Open a route pool file and map its sections
+	 * @param instLIRP	the instance to which the routes apply
+	 * @param fileName	the name of the file
+	 * @param checkID	if false, the ID of the instance of the file is not compared to that of instLIRP
+	 * @return			a RoutePoolFile object giving access to the routes of the file, or null if the file does not exist or was created for another instance or other route parameters
+	 * @throws IOException
+	 */
+	public static RoutePoolFile open(Instance instLIRP, String fileName, boolean checkID) throws IOException {
+		if(!new File(fileName).isFile())
+			return null;
+
+		try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			ByteBuffer header = ByteBuffer.allocate((int) Math.min(fileSize, BUFFER_SIZE));
+			channel.read(header, 0);
+			header.flip();
+			if(header.remaining() < 2 * Integer.BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+				System.out.println("The file " + fileName + " is not a route pool file.");
+				return null;
+			}
+			if(!readHeader(header, instLIRP, checkID)) {
+				System.out.println("The route pool file " + fileName + " does not correspond to the instance and route parameters, it is ignored.");
+				return null;
+			}
+
+			ArrayList<ArrayList<MappedByteBuffer>> sections = new ArrayList<ArrayList<MappedByteBuffer>>();
+			for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+				sections.add(new ArrayList<MappedByteBuffer>());
+			}
+			/* Go through the sections, reading their header only and mapping their records */
+			long position = header.position();
+			ByteBuffer sectionHeader = ByteBuffer.allocate(SECTION_HEADER);
+			while(position < fileSize) {
+				sectionHeader.clear();
+				channel.read(sectionHeader, position);
+				sectionHeader.flip();
+				int lvl = sectionHeader.getInt();
+				int nbStops = sectionHeader.getInt();
+				int nbRoutes = sectionHeader.getInt();
+				long sectionSize = (long) nbRoutes * getRecordSize(nbStops);
+				/* The sections of a level are written by increasing number of stops */
+				if(lvl < 0 || lvl >= sections.size() || nbStops != sections.get(lvl).size() + 1 || position + SECTION_HEADER + sectionSize > fileSize) {
+					System.out.println("The route pool file " + fileName + " is corrupted, it is ignored.");
+					return null;
+				}
+				sections.get(lvl).add(channel.map(FileChannel.MapMode.READ_ONLY, position + SECTION_HEADER, sectionSize));
+				position += SECTION_HEADER + sectionSize;
+			}
+			return new RoutePoolFile(instLIRP, sections);
+		}
+		catch (BufferUnderflowException bue) {
+			System.out.println("The route pool file " + fileName + " is truncated, it is ignored.");
+			return null;
+		}
+	}
+
+	/**
+	 * Write the routes of a RouteManager object to a route pool file (the routes are streamed if the RouteManager does not store them)
+	 * @param rm		the RouteManager object containing the routes
+	 * @param fileName	the name of the file
+	 * @throws IOException
+	 */
+	public static void write(RouteManager rm, String fileName) throws IOException {
+		Instance instLIRP = rm.getInstance();
+		try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			writeHeader(buffer, instLIRP);
+
+			for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+				int nbStops = 1;
+				Iterator<Route> rIter = rm.getRoutesIterator(lvl, nbStops);
+				while(rIter.hasNext()) {
+					int recordSize = getRecordSize(nbStops);
+					/* The number of routes is only known at the end of the section, it is written afterwards */
+					long nbRoutesPosition = channel.position() + buffer.position() + 2 * Integer.BYTES;
+					buffer.putInt(lvl);
+					buffer.putInt(nbStops);
+					buffer.putInt(0);
+					int nbRoutes = 0;
+					while(rIter.hasNext()) {
+						Route route = rIter.next();
+						if(buffer.remaining() < recordSize)
+							flush(buffer, channel);
+						buffer.putInt(route.getStartIndex());
+						for(int stop : route.getStops())
+							buffer.putInt(stop);
+						buffer.putDouble(route.getTravelTime());
+						buffer.putDouble(route.getCost());
+						nbRoutes++;
+					}
+					flush(buffer, channel);
+					ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+					count.putInt(0, nbRoutes);
+					channel.write(count, nbRoutesPosition);
+
+					nbStops++;
+					rIter = rm.getRoutesIterator(lvl, nbStops);
+				}
+			}
+			flush(buffer, channel);
+		}
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 *
+	 * @param nbStops	the number of stops of the routes
+	 * @return			the number of bytes of the record of a route with nbStops stops
+	 */
+	private static int getRecordSize(int nbStops) {
+		return (nbStops + 1) * Integer.BYTES + 2 * Double.BYTES;
+	}
+
+	/**
+	 * Write the description of the instance and of the route parameters used to generate the pool
+	 * @param buffer	the buffer to fill
+	 * @param instLIRP	the instance to which the routes apply
+	 */
+	static void writeHeader(ByteBuffer buffer, Instance instLIRP) {
+		byte[] instID = (instLIRP.getID() != null) ? instLIRP.getID().getBytes(StandardCharsets.UTF_8) : new byte[0];
+		buffer.putInt(instID.length);
+		buffer.put(instID);
+		buffer.putDouble(Config.AVG_SPEED);
+		buffer.putDouble(Config.STOPPING_TIME);
+		buffer.putDouble(Config.MAX_TIME_ROUTE);
+		buffer.putDouble(Config.FIXED_COST_ROUTE);
+		buffer.putDouble(Config.COST_KM);
+		buffer.putInt(instLIRP.getNbLevels());
+		for(int lvl = 0; lvl < instLIRP.getNbLevels(); lvl++) {
+			buffer.putInt(instLIRP.getNbLocations(lvl));
+		}
+	}
+
+	/**
+	 * Read the description of the instance and route parameters of a file and compare them to the current ones
+	 * @param buffer	the buffer containing the header of the file
+	 * @param instLIRP	the instance to which the routes should apply
+	 * @param checkID	if false, the file may have been created for another instance with the same number of locations
+	 * @return			true if the file was created for this instance with the current route parameters
+	 */
+	static boolean readHeader(ByteBuffer buffer, Instance instLIRP, boolean checkID) {
+		int idLength = buffer.getInt();
+		if(idLength < 0 || idLength > buffer.remaining())
+			return false;
+		byte[] instID = new byte[idLength];
+		buffer.get(instID);
+		String expectedID = (instLIRP.getID() != null) ? instLIRP.getID() : "";
+		boolean sameInstance = !checkID || expectedID.equals(new String(instID, StandardCharsets.UTF_8));
+		sameInstance &= buffer.getDouble() == Config.AVG_SPEED;
+		sameInstance &= buffer.getDouble() == Config.STOPPING_TIME;
+		sameInstance &= buffer.getDouble() == Config.MAX_TIME_ROUTE;
+		sameInstance &= buffer.getDouble() == Config.FIXED_COST_ROUTE;
+		sameInstance &= buffer.getDouble() == Config.COST_KM;
+		sameInstance &= buffer.getInt() == instLIRP.getNbLevels();
+		for(int lvl = 0; sameInstance && lvl < instLIRP.getNbLevels(); lvl++) {
+			sameInstance = buffer.getInt() == instLIRP.getNbLocations(lvl);
+		}
+		return sameInstance;
+	}
+
+	/**
+	 * Write the content of a buffer to a channel and clear the buffer
+	 * @param buffer	the buffer to write
+	 * @param channel	the destination channel
+	 * @throws IOException
+	 */
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -1,10 +1,11 @@
 package solverLIRP;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
 
 public class RouteSet extends LinkedHashSet<Route> {
 
@@ -12,13 +13,155 @@ public class RouteSet extends LinkedHashSet<Route> {
 	 * 
 	 */
 	private static final long serialVersionUID = -4122953975647997317L;
-	
+
+	/* Coverage of the locations, updated as the routes are added to and removed from the set */
+	private int[] nbVisits = new int[0];		// Number of routes of the set stopping at each location
+	private long[] reached = new long[0];		// Bitset of the locations where at least one route of the set stops
+
+	/*
+	 * COVERAGE
+	 */
+	@Override
+	public boolean add(Route route) {
+		if(!super.add(route))
+			return false;
+		for(int stop : route.getStops()) {
+			if(stop >= this.nbVisits.length)
+				this.nbVisits = Arrays.copyOf(this.nbVisits, Math.max(stop + 1, 2 * this.nbVisits.length));
+			if(this.nbVisits[stop]++ == 0) {
+				if((stop >> 6) >= this.reached.length)
+					this.reached = Arrays.copyOf(this.reached, Math.max((stop >> 6) + 1, 2 * this.reached.length));
+				this.reached[stop >> 6] |= 1L << stop;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if(!super.remove(o))
+			return false;
+		this.removeStops((Route) o);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		Arrays.fill(this.nbVisits, 0);
+		Arrays.fill(this.reached, 0);
+	}
+
+	@Override
+	public Iterator<Route> iterator() {
+		/* The routes removed through the iterator (removeAll, retainAll...) must also update the coverage */
+		Iterator<Route> rIter = super.iterator();
+		return new Iterator<Route>() {
+			private Route current;
+
+			@Override
+			public boolean hasNext() {
+				return rIter.hasNext();
+			}
+
+			@Override
+			public Route next() {
+				this.current = rIter.next();
+				return this.current;
+			}
+
+			@Override
+			public void remove() {
+				rIter.remove();
+				removeStops(this.current);
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * @param loc	the index of a location of the level of the routes
+	 * @return		true if at least one route of the set stops at loc
+	 */
+	public boolean reaches(int loc) {
+		return (loc >> 6) < this.reached.length && (this.reached[loc >> 6] & (1L << loc)) != 0;
+	}
+
+	/**
+	 * Find the first location that no route of the set reaches, scanning the coverage bitset 64 locations at a time
+	 * @param fromLoc		the index of the first location to check
+	 * @param nbLocations	the number of locations of the level
+	 * @return				the index of the first location in [fromLoc, nbLocations - 1] not reached by the routes of the set, -1 if there is none
+	 */
+	public int nextUnreached(int fromLoc, int nbLocations) {
+		int word = fromLoc >> 6;
+		long unreached = (word < this.reached.length) ? ~this.reached[word] : -1L;
+		unreached &= -1L << fromLoc;
+		while(true) {
+			if(unreached != 0) {
+				int loc = (word << 6) + Long.numberOfTrailingZeros(unreached);
+				return (loc < nbLocations) ? loc : -1;
+			}
+			word++;
+			if(word << 6 >= nbLocations)
+				return -1;
+			unreached = (word < this.reached.length) ? ~this.reached[word] : -1L;
+		}
+	}
+
+	/**
+	 * Add a direct route to each location of the level that no route of the set reaches
+	 * @param directsByLoc	the direct route to add for each location (null if there is none)
+	 * @return				the direct routes added to the set
+	 */
+	public ArrayList<Route> complete(Route[] directsByLoc) {
+		ArrayList<Route> addedRoutes = new ArrayList<Route>();
+		int loc = this.nextUnreached(0, directsByLoc.length);
+		while(loc > -1) {
+			if(directsByLoc[loc] != null) {
+				this.add(directsByLoc[loc]);
+				addedRoutes.add(directsByLoc[loc]);
+			}
+			loc = this.nextUnreached(loc + 1, directsByLoc.length);
+		}
+		return addedRoutes;
+	}
+
+	/**
+	 * Index a set of direct routes by the location they serve
+	 * @param directs	the direct routes of a level
+	 * @return			an array containing for each location the first direct route of directs stopping at it (null if there is none)
+	 */
+	public static Route[] indexDirects(RouteSet directs) {
+		Route[] directsByLoc = new Route[0];
+		for(Route rDir : directs) {
+			int stop = rDir.getStops()[0];
+			if(stop >= directsByLoc.length)
+				directsByLoc = Arrays.copyOf(directsByLoc, Math.max(stop + 1, 2 * directsByLoc.length));
+			if(directsByLoc[stop] == null)
+				directsByLoc[stop] = rDir;
+		}
+		return directsByLoc;
+	}
+
+	/**
+	 * Update the coverage after a route has been removed from the set
+	 * @param route	the route removed
+	 */
+	private void removeStops(Route route) {
+		for(int stop : route.getStops()) {
+			if(--this.nbVisits[stop] == 0)
+				this.reached[stop >> 6] &= ~(1L << stop);
+		}
+	}
+
 	/**
 	 * Sample route from this RouteSet object and return the set of samples obtained
 	 * @param subsetSizes	The size of the subsets to generate
+	 * @param rnd			The random generator used to draw the samples
 	 * @return				A set of samples of size subsetSizes drawn from this RouteSet object
 	 */
-	public HashSet<RouteSet> sample(int subsetSizes) {
+	public HashSet<RouteSet> sample(int subsetSizes, SplittableRandom rnd) {
 		int nbSubsets = (int) Math.ceil(((double) this.size()) / subsetSizes);
 		HashSet<RouteSet> rSubsets = new HashSet<RouteSet>();
 		ArrayList<Route> listOfRoutes = new ArrayList<Route>(this);
@@ -35,7 +178,6 @@ public class RouteSet extends LinkedHashSet<Route> {
 		/* Shuffle code */
 		int[] permutDC = new int[nbSubsets * subsetSizes];
 		/* Shuffle the array at random */
-		Random rnd = ThreadLocalRandom.current();
 		/* Fill an array with the indices of possible routes */
 		for (int loopIndex = 0; loopIndex < listOfRoutes.size(); loopIndex++)
 			permutDC[loopIndex] = loopIndex;
@@ -0,0 +1,145 @@
+package solverLIRP;
+
+import java.util.Arrays;
+
+/**
+ * Batch of linear constraints on the variables of a MIPBackend object, stored row by row in primitive sparse arrays
+ * (index of the first term of each row, then the variable and coefficient of each term), so that a whole set of constraints
+ * is handed to the backend in a single call. The terms of the current row are added with addTerm, then the row is closed
+ * with endLe or endEq.
+ * @author gmas
+ *
+ */
+public class RowBatch {
+
+	private int[] rowStart = new int[64];		// The index of the first term of each row (rowStart[nbRows] is the end of the last row)
+	private double[] rhs = new double[64];		// The right-hand side of each row
+	private boolean[] isEq = new boolean[64];	// States if each row is an equality (otherwise it is a <= constraint)
+	private int[] vars = new int[256];			// The index of the variable of each term
+	private double[] coefs = new double[256];	// The coefficient of each term
+	private int nbRows;							// The number of closed rows
+	private int nbTerms;						// The number of terms, including those of the current row
+
+	/**
+	 * Add a term to the current row
+	 * @param coef	the coefficient of the variable
+	 * @param var	the index of the variable
+	 * @return		the batch
+	 */
+	public RowBatch addTerm(double coef, int var) {
+		if(this.nbTerms == this.vars.length) {
+			this.vars = Arrays.copyOf(this.vars, 2 * this.nbTerms);
+			this.coefs = Arrays.copyOf(this.coefs, 2 * this.nbTerms);
+		}
+		this.vars[this.nbTerms] = var;
+		this.coefs[this.nbTerms] = coef;
+		this.nbTerms++;
+		return this;
+	}
+
+	/**
+	 * Close the current row as the constraint (sum of its terms) <= rhs
+	 * @param rhs	the right-hand side
+	 */
+	public void endLe(double rhs) {
+		this.endRow(rhs, false);
+	}
+
+	/**
+	 * Close the current row as the constraint (sum of its terms) = rhs
+	 * @param rhs	the right-hand side
+	 */
+	public void endEq(double rhs) {
+		this.endRow(rhs, true);
+	}
+
+	/**
+	 * Remove all the rows of the batch
+	 */
+	public void clear() {
+		this.nbRows = 0;
+		this.nbTerms = 0;
+	}
+
+	/**
+	 *
+	 * @return	the number of closed rows of the batch
+	 */
+	public int getNbRows() {
+		return this.nbRows;
+	}
+
+	/**
+	 *
+	 * @param row	the index of a row
+	 * @return		the index of the first term of the row
+	 */
+	public int getRowStart(int row) {
+		return this.rowStart[row];
+	}
+
+	/**
+	 *
+	 * @param row	the index of a row
+	 * @return		the index following the last term of the row
+	 */
+	public int getRowEnd(int row) {
+		return this.rowStart[row + 1];
+	}
+
+	/**
+	 *
+	 * @param row	the index of a row
+	 * @return		the right-hand side of the row
+	 */
+	public double getRhs(int row) {
+		return this.rhs[row];
+	}
+
+	/**
+	 *
+	 * @param row	the index of a row
+	 * @return		true if the row is an equality, false if it is a <= constraint
+	 */
+	public boolean isEq(int row) {
+		return this.isEq[row];
+	}
+
+	/**
+	 *
+	 * @param term	the index of a term
+	 * @return		the index of the variable of the term
+	 */
+	public int getVar(int term) {
+		return this.vars[term];
+	}
+
+	/**
+	 *
+	 * @param term	the index of a term
+	 * @return		the coefficient of the term
+	 */
+	public double getCoef(int term) {
+		return this.coefs[term];
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 * Close the current row
+	 * @param rowRhs	the right-hand side of the row
+	 * @param rowIsEq	true for an equality, false for a <= constraint
+	 */
+	private void endRow(double rowRhs, boolean rowIsEq) {
+		if(this.nbRows + 1 == this.rowStart.length) {
+			this.rowStart = Arrays.copyOf(this.rowStart, 2 * this.rowStart.length);
+			this.rhs = Arrays.copyOf(this.rhs, 2 * this.rhs.length);
+			this.isEq = Arrays.copyOf(this.isEq, 2 * this.isEq.length);
+		}
+		this.rhs[this.nbRows] = rowRhs;
+		this.isEq[this.nbRows] = rowIsEq;
+		this.nbRows++;
+		this.rowStart[this.nbRows] = this.nbTerms;
+	}
+}
@@ -1,8 +1,12 @@
 package solverLIRP;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
 import java.util.TreeSet;
 
 public class SampleMap extends HashMap<Integer, HashSet<RouteSet>> {
@@ -16,15 +20,16 @@ public class SampleMap extends HashMap<Integer, HashSet<RouteSet>> {
 	 * 
 	 * @param setOfLoops	The set of multi-stops routes at every level of the network
 	 * @param subsetSizes	The size of the subsets to create a each level
+	 * @param rnd			The random generator used to draw the samples
 	 * @return				A SampleMap object containing for each level a collection of subsets of multi-stops routes
 	 */
-	public SampleMap (RouteMap rMap, int[] subsetSizes) {
+	public SampleMap (RouteMap rMap, int[] subsetSizes, SplittableRandom rnd) {
 
 		for(int lvl = 0; lvl < subsetSizes.length; lvl++) {
 			/* Sample the routes at each level and put it in the map */
 			HashSet<RouteSet> routesSample = new HashSet<RouteSet>();
 			if(subsetSizes[lvl] > 0) {
-				routesSample.addAll(rMap.get(lvl).sample(subsetSizes[lvl]));
+				routesSample.addAll(rMap.get(lvl).sample(subsetSizes[lvl], rnd));
 			}
 			else {
 				routesSample.add(rMap.get(lvl));
@@ -34,20 +39,31 @@ public class SampleMap extends HashMap<Integer, HashSet<RouteSet>> {
 	}
 	
 	/**
-	 * Redefine the samples in each level of the SampleMap object
-	 * @param rMap			A RouteMap object from which to create the samples
+	 * 
+	 * @param pool			An ElitePool object from which to create the samples, the routes with the highest scores being the most likely to be drawn
+	 * @param subsetSizes	The size of the subsets to create a each level
+	 * @param rnd			The random generator used to draw the samples
+	 */
+	public SampleMap (ElitePool pool, int[] subsetSizes, SplittableRandom rnd) {
+		this.reSample(pool, subsetSizes, rnd);
+	}
+
+	/**
+	 * Redefine the samples in each level of the SampleMap object, the routes with the highest scores being the most likely to be drawn
+	 * @param pool			An ElitePool object from which to create the samples
 	 * @param subsetSizes	The samples sizes in each level
+	 * @param rnd			The random generator used to draw the samples
 	 */
-	public void reSample(RouteMap rMap, int[] subsetSizes) {
+	public void reSample(ElitePool pool, int[] subsetSizes, SplittableRandom rnd) {
 		this.clear();
 		for(int lvl = 0; lvl < subsetSizes.length; lvl++) {
 			/* Sample the routes at each level and put it in the map */
 			HashSet<RouteSet> routesSample = new HashSet<RouteSet>();
 			if(subsetSizes[lvl] > 0) {
-				routesSample.addAll(rMap.get(lvl).sample(subsetSizes[lvl]));
+				routesSample.addAll(pool.sample(lvl, subsetSizes[lvl], rnd));
 			}
 			else {
-				routesSample.add(rMap.get(lvl));
+				routesSample.add(pool.getRoutes(lvl));
 			}
 			this.put(lvl, routesSample);
 		}
@@ -61,21 +77,13 @@ public class SampleMap extends HashMap<Integer, HashSet<RouteSet>> {
 	public void completeSamples(RouteMap directMap) {
 		if(directMap.keySet().containsAll(this.keySet())) {
 			for(int lvl : this.keySet()) {
-				for(Route rDir : directMap.get(lvl)) {
-					Iterator<RouteSet> setIter = this.get(lvl).iterator();
-					while(setIter.hasNext()) {
-						boolean reached = false;
-						RouteSet currentSet = setIter.next(); 
-						currentSet.addAll(directMap.get(lvl));
-						Iterator<Route> rIter = currentSet.iterator();
-						while(!reached && rIter.hasNext()) {
-							reached = rIter.next().getStops().containsAll(rDir.getStops());
-						}
-						if(!reached) {
-							System.out.println("Location " + rDir.getStops().toString() + " unreachable, adding it to the subset");
-							System.out.println("Direct route from DC " + rDir.getStart().toString() + " to client " + rDir.getStops().toString() + "added to the pool.");
-							currentSet.add(rDir);
-						}
+				Route[] directsByLoc = RouteSet.indexDirects(directMap.get(lvl));
+				for(RouteSet currentSet : this.get(lvl)) {
+					currentSet.addAll(directMap.get(lvl));
+					/* The coverage of the set gives the unreachable locations directly */
+					for(Route rDir : currentSet.complete(directsByLoc)) {
+						System.out.println("Location " + Arrays.toString(rDir.getStops()) + " unreachable, adding it to the subset");
+						System.out.println("Direct route from DC " + rDir.getStart().toString() + " to client " + Arrays.toString(rDir.getStops()) + "added to the pool.");
 					}
 				}
 			}
@@ -88,46 +96,73 @@ public class SampleMap extends HashMap<Integer, HashSet<RouteSet>> {
 
 	/**
 	 * 
-	 * @param setOfMaps	A map between the levels and all the set of routes available for the level
-	 * @return			A set of maps containing all the possible combinations of set of routes across all levels of the map
+	 * @return	the number of possible combinations of subsets of routes across all levels of the map
 	 */
-	public HashSet<RouteMap> getCombinations() {
-		HashSet<RouteMap> previousCombos = new HashSet<RouteMap>();
-		HashSet<RouteMap> currentCombos = new HashSet<RouteMap>();
+	public long getNbCombinations() {
+		long nbCombinations = 1;
+		for(HashSet<RouteSet> samplesLvl : this.values())
+			nbCombinations *= samplesLvl.size();
+		return nbCombinations;
+	}
 
-		TreeSet<Integer> lvls = new TreeSet<Integer>(this.keySet());
+	/**
+	 * Get the combinations of subsets of routes across all levels of the map. The combinations are enumerated lazily, one
+	 * at a time, and each of them is a view on the subsets of the map: its RouteSet objects are shared with the map and
+	 * with the other combinations, and must be copied before being modified.
+	 * @return	an Iterable object going through all the possible combinations of subsets of routes across all levels of the map
+	 */
+	public Iterable<RouteMap> getCombinations() {
+		return () -> new CombinationIterator();
+	}
 
-		while(lvls.size() > 0) {
-			previousCombos.clear();
-			previousCombos.addAll(currentCombos);
-			currentCombos.clear();
-			int upLvl = lvls.pollFirst();
-			Iterator<RouteSet> setIter = this.get(upLvl).iterator();
-			while(setIter.hasNext()) {
-				if(previousCombos.isEmpty()) {
-					RouteMap mapToAdd = new RouteMap();
+	/**
+	 * Iterator going through the combinations of subsets like an odometer: the subset of the last level changes at each step,
+	 * and the subset of a level changes when all the subsets of the next levels have been combined with it
+	 */
+	private class CombinationIterator implements Iterator<RouteMap> {
 
-					mapToAdd.put(upLvl, new RouteSet());
-					mapToAdd.get(upLvl).addAll(setIter.next());
-					currentCombos.add(mapToAdd);
-				}
-				else {
-					RouteSet currentSet = setIter.next();
-					for(RouteMap mapToModify : previousCombos) {
-						RouteMap mapToAdd = new RouteMap();
-						for(int lvl : mapToModify.keySet()) {
-							mapToAdd.put(lvl, new RouteSet());
-							mapToAdd.get(lvl).addAll(mapToModify.get(lvl));
-						}
-						mapToAdd.put(upLvl, new RouteSet());
-						mapToAdd.get(upLvl).addAll(currentSet);
-						currentCombos.add(mapToAdd);
-					}
-				}
+		private int[] lvls;									// The levels of the map, in increasing order
+		private ArrayList<ArrayList<RouteSet>> samples;		// The subsets of each level
+		private int[] positions;							// The position of the subset of each level in the next combination
+		private boolean hasNext;							// States if there is a combination left
+
+		private CombinationIterator() {
+			TreeSet<Integer> sortedLvls = new TreeSet<Integer>(keySet());
+			this.lvls = new int[sortedLvls.size()];
+			this.samples = new ArrayList<ArrayList<RouteSet>>();
+			int lvlIndex = 0;
+			for(int lvl : sortedLvls) {
+				this.lvls[lvlIndex++] = lvl;
+				this.samples.add(new ArrayList<RouteSet>(get(lvl)));
 			}
+			this.positions = new int[this.lvls.length];
+			this.hasNext = this.lvls.length > 0 && getNbCombinations() > 0;
 		}
 
-		return currentCombos;
-	}
+		@Override
+		public boolean hasNext() {
+			return this.hasNext;
+		}
+
+		@Override
+		public RouteMap next() {
+			if(!this.hasNext)
+				throw new NoSuchElementException();
+			RouteMap combination = new RouteMap();
+			for(int lvlIndex = 0; lvlIndex < this.lvls.length; lvlIndex++)
+				combination.put(this.lvls[lvlIndex], this.samples.get(lvlIndex).get(this.positions[lvlIndex]));
 
+			/* Move to the next combination */
+			int lvlIndex = this.lvls.length - 1;
+			while(lvlIndex > -1 && this.positions[lvlIndex] == this.samples.get(lvlIndex).size() - 1) {
+				this.positions[lvlIndex] = 0;
+				lvlIndex--;
+			}
+			if(lvlIndex > -1)
+				this.positions[lvlIndex]++;
+			else
+				this.hasNext = false;
+			return combination;
+		}
+	}
 }
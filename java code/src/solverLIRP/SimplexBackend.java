@@ -0,0 +1,1233 @@
+package solverLIRP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+
+/**
+ * Pure Java implementation of MIPBackend: a branch-and-bound whose nodes are solved by a bounded dual simplex, warm-started
+ * from the basis of the previous node. The inverse of the basis is kept in product form, as a list of sparse elementary
+ * matrices rebuilt from the columns of the basis every few pivots, so that its memory follows the number of nonzeros of the
+ * basis rather than the square of the number of constraints. It is much slower than CPLEX and single-threaded, but it solves
+ * the small instances and the subproblems of the route sampling without any native library or licence.
+ * The dual simplex starts from the basis made of the slack variables of the constraints, which is dual feasible as long as
+ * the costs of the variables without upper bound are nonnegative (as in the LIRP). The constraints on a single variable are
+ * turned into bounds of the variable.
+ * @author gmas
+ *
+ */
+public class SimplexBackend implements MIPBackend {
+
+	private static final double INF = Double.POSITIVE_INFINITY;
+	private static final double PRIMAL_TOL = 1e-7;		// Tolerance on the bounds of the variables
+	private static final double DUAL_TOL = 1e-9;		// Tolerance on the sign of the reduced costs
+	private static final double PIVOT_TOL = 1e-9;		// Minimum absolute value of a pivot
+	private static final double INT_TOL = 1e-6;			// Tolerance on the integrality of the variables
+	private static final double MIP_GAP = 1e-4;			// Relative gap under which a node cannot improve the best solution
+	private static final double BIG_BOUND = 1e9;		// Artificial bound of the variables with a negative cost and no upper bound
+	private static final double INF_BOUND = 1e20;		// Bound beyond which a variable is considered unbounded (as in CPLEX)
+	private static final double DROP_TOL = 1e-14;		// Absolute value under which an entry of an elementary matrix is dropped
+	private static final int REFACTOR_FREQ = 100;		// Number of pivots between two factorizations of the basis
+	private static final int CUT_ROUNDS = 10;			// Maximum number of rounds of separation at the root of the tree
+	private static final int MAX_CUTS = 2000;			// Maximum number of cuts added to the model
+	private static final double CUT_TAILOFF = 1e-3;		// Relative improvement of the root bound under which the separation stops
+	private static final double CUT_TIME_SHARE = 0.25;	// Maximum share of the time limit spent in the separation at the root
+	private static final int DIVE_FREQ = 10;			// Number of nodes selected between two dives of the search once a solution is known
+	private static final int HEUR_FREQ = 20;			// Number of nodes between two calls of the primal heuristics
+	private static final double HEUR_TIME_SHARE = 0.2;	// Maximum share of the resolution time spent in the primal heuristics after the root
+
+	/* Status of the variables in the simplex */
+	private static final int BASIC = 0;
+	private static final int AT_LB = 1;
+	private static final int AT_UB = 2;
+
+	/* Results of the dual simplex */
+	private static final int OPTIMAL = 0;
+	private static final int INFEASIBLE = 1;
+	private static final int CUTOFF = 2;
+	private static final int TIMEOUT = 3;
+	private static final int ITER_LIMIT = 4;
+
+	/*
+	 * MODEL
+	 */
+	private int nbVars;									// The number of variables of the model
+	private double[] varLB = new double[64];			// The bounds of each variable
+	private double[] varUB = new double[64];
+	private double[] rowLB = new double[64];			// The bounds of each variable implied by the constraints on this variable only
+	private double[] rowUB = new double[64];
+	private double[] cost = new double[64];				// The coefficient of each variable in the objective
+	private boolean[] integer = new boolean[64];		// States if each variable is integer
+	private boolean[] relaxed = new boolean[64];		// States if the integrality of each variable is relaxed
+	private ArrayList<int[]> rowVars = new ArrayList<int[]>();			// The variables of each constraint
+	private ArrayList<double[]> rowCoefs = new ArrayList<double[]>();	// The coefficients of each constraint
+	private ArrayList<Double> rowRhs = new ArrayList<Double>();			// The right-hand side of each constraint
+	private ArrayList<Boolean> rowEq = new ArrayList<Boolean>();		// States if each constraint is an equality (otherwise it is a <= constraint)
+	private int[] startVars;							// The variables of the starting point (null if there is none)
+	private double[] startValues;						// The values of the variables of the starting point
+	private double timeLimit = Double.MAX_VALUE;		// The time limit of a resolution, in seconds
+
+	/*
+	 * LINEAR PROGRAM: the n variables of the model followed by the slack variables of the m constraints
+	 */
+	private boolean isBuilt;							// States if the linear program corresponds to the model
+	private int n;
+	private int m;
+	private int[] colStart;								// The columns of the constraints matrix, in compressed sparse format
+	private int[] colRows;
+	private double[] colVals;
+	private double[] b;									// The right-hand side of the constraints
+	private double[] c;									// The costs of all the variables
+	private double[] l;									// The bounds of all the variables in the current node
+	private double[] u;
+	private double[] rootL;								// The bounds of all the variables at the root of the tree
+	private double[] rootU;
+	private boolean[] touched;							// States if the bounds of a variable differ from those of the root
+	private int[] touchedVars;							// The variables whose bounds differ from those of the root
+	private int nbTouched;
+	private int[] upLocks;								// The number of constraints that an increase of each variable may violate
+	private int[] downLocks;							// The number of constraints that a decrease of each variable may violate
+
+	/* Basis */
+	private boolean hasBasis;							// States if the basis corresponds to the linear program
+	private int[] head;									// The basic variable of each row
+	private int[] status;								// The status of each variable (BASIC, AT_LB or AT_UB)
+	private double[] x;									// The value of each variable
+	private double[] d;									// The reduced cost of each variable
+	private int nbPivots;								// The number of pivots since the last factorization of the basis
+
+	/* Inverse of the basis in product form B^-1 = E_k ... E_1: each elementary matrix E_i is the identity except for the
+	 * column of its pivot position, whose nonzero entries are stored sparsely */
+	private int nbEtas;									// The number of elementary matrices
+	private int[] etaPos = new int[64];					// The pivot position of each elementary matrix
+	private int[] etaStart = new int[65];				// The first entry of each elementary matrix in etaIdx and etaVal
+	private int[] etaIdx = new int[1024];				// The position of each entry
+	private double[] etaVal = new double[1024];			// The value of each entry
+
+	/*
+	 * RESULTS
+	 */
+	private String solStatus = "Unknown";
+	private double[] bestSol;							// The best solution found (null if there is none)
+	private double bestObj = INF;						// The objective value of the best solution
+	private double bestBound = -INF;					// The best lower bound found by the last resolution
+	private Trajectory trajectory;						// The trajectory in which the incumbents are recorded (null if there is none)
+	private CutSeparator separator;						// The separation routine of user cuts (null if there is none)
+	private int nbCuts;									// The number of cuts added to the model
+	private long deadline;								// The time at which the current resolution must stop, in nanoseconds
+
+	/**
+	 * Node of the branch-and-bound tree, defined by the bounds of its branching variable and its ancestors
+	 */
+	private static final class Node {
+		private Node parent;
+		private int var;				// The branching variable (-1 for the root)
+		private double lb;				// The bounds of the branching variable in the node
+		private double ub;
+		private double bound;			// A lower bound on the objective value of the node (the value of its parent)
+		private int depth;				// The number of branchings from the root
+
+		private Node(Node parent, int var, double lb, double ub, double bound) {
+			this.parent = parent;
+			this.var = var;
+			this.lb = lb;
+			this.ub = ub;
+			this.bound = bound;
+			this.depth = (parent == null) ? 0 : parent.depth + 1;
+		}
+	}
+
+	/* Order of the open nodes: best bound first, and the deepest node first among those with the same bound */
+	private static final Comparator<Node> BEST_BOUND = (node1, node2) -> (node1.bound != node2.bound) ? Double.compare(node1.bound, node2.bound)
+			: Integer.compare(node2.depth, node1.depth);
+
+	/*
+	 * MODEL
+	 */
+	@Override
+	public int addBoolVars(int nbVars) {
+		return this.addVars(nbVars, 0, 1, true);
+	}
+
+	@Override
+	public int addIntVars(int nbVars, int lb, int ub) {
+		return this.addVars(nbVars, lb, ub, true);
+	}
+
+	@Override
+	public int addNumVars(int nbVars, double lb, double ub) {
+		return this.addVars(nbVars, lb, ub, false);
+	}
+
+	@Override
+	public void addLe(LinearExpr lhs, double rhs) {
+		this.addRow(toVars(lhs), toCoefs(lhs), rhs, false);
+	}
+
+	@Override
+	public void addEq(LinearExpr lhs, double rhs) {
+		this.addRow(toVars(lhs), toCoefs(lhs), rhs, true);
+	}
+
+	@Override
+	public void addRows(RowBatch batch) {
+		for(int row = 0; row < batch.getNbRows(); row++) {
+			int rowLength = batch.getRowEnd(row) - batch.getRowStart(row);
+			int[] vars = new int[rowLength];
+			double[] coefs = new double[rowLength];
+			for(int term = 0; term < rowLength; term++) {
+				vars[term] = batch.getVar(batch.getRowStart(row) + term);
+				coefs[term] = batch.getCoef(batch.getRowStart(row) + term);
+			}
+			this.addRow(vars, coefs, batch.getRhs(row), batch.isEq(row));
+		}
+	}
+
+	@Override
+	public void minimize(LinearExpr obj) {
+		Arrays.fill(this.cost, 0);
+		for(int term = 0; term < obj.getNbTerms(); term++)
+			this.cost[obj.getVar(term)] += obj.getCoef(term);
+		this.isBuilt = false;
+	}
+
+	@Override
+	public void setUB(int var, double ub) {
+		this.varUB[var] = (ub >= INF_BOUND) ? INF : ub;
+	}
+
+	@Override
+	public void relax(int[] vars) {
+		for(int var : vars)
+			this.relaxed[var] = true;
+	}
+
+	@Override
+	public void unrelax() {
+		Arrays.fill(this.relaxed, false);
+	}
+
+	@Override
+	public void setMIPStart(int[] vars, double[] values) {
+		this.startVars = (vars != null) ? vars.clone() : null;
+		this.startValues = (values != null) ? values.clone() : null;
+	}
+
+	/*
+	 * PARAMETERS
+	 */
+	@Override
+	public void setTimeLimit(double timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	@Override
+	public void setThreads(int nbThreads) {
+		/* The resolution is sequential */
+	}
+
+	@Override
+	public void setTrajectory(Trajectory trajectory) {
+		this.trajectory = trajectory;
+	}
+
+	@Override
+	public void setCutSeparator(CutSeparator separator) {
+		this.separator = separator;
+	}
+
+	/*
+	 * RESOLUTION
+	 */
+	@Override
+	public boolean solve() throws MIPException {
+		this.deadline = System.nanoTime() + (long) Math.min(this.timeLimit * 1e9, Long.MAX_VALUE / 4);
+		this.bestSol = null;
+		this.bestObj = INF;
+		this.bestBound = -INF;
+		if(!this.isBuilt)
+			this.buildLP();
+
+		/* Bounds of the root node */
+		for(int j = 0; j < this.n; j++) {
+			this.rootL[j] = Math.max(this.varLB[j], this.rowLB[j]);
+			this.rootU[j] = Math.min(this.varUB[j], this.rowUB[j]);
+			if(this.isInteger(j)) {
+				this.rootL[j] = Math.ceil(this.rootL[j] - INT_TOL);
+				this.rootU[j] = Math.floor(this.rootU[j] + INT_TOL);
+			}
+			if(this.rootL[j] > this.rootU[j] + PRIMAL_TOL) {
+				this.solStatus = "Infeasible";
+				this.bestBound = INF;
+				return false;
+			}
+		}
+		for(int j = 0; j < this.n + this.m; j++) {
+			this.l[j] = this.rootL[j];
+			this.u[j] = this.rootU[j];
+			this.touched[j] = false;
+		}
+		this.nbTouched = 0;
+		if(!this.hasBasis)
+			this.initBasis();
+		this.updateNonbasic();
+		this.computeBasicValues();
+
+		if(this.startVars != null)
+			this.solveStart();
+		this.branchAndBound();
+		return this.bestSol != null;
+	}
+
+	@Override
+	public String getStatus() {
+		return this.solStatus;
+	}
+
+	@Override
+	public boolean isInfeasible() {
+		return this.solStatus.equals("Infeasible");
+	}
+
+	@Override
+	public double getObjValue() throws MIPException {
+		if(this.bestSol == null)
+			throw new MIPException("No solution available");
+		return this.bestObj;
+	}
+
+	@Override
+	public double getBestObjValue() {
+		/* The bound is finite even if the root was not solved, as with CPLEX */
+		return Math.max(this.bestBound, -Double.MAX_VALUE);
+	}
+
+	@Override
+	public double getValue(int var) throws MIPException {
+		if(this.bestSol == null)
+			throw new MIPException("No solution available");
+		return this.bestSol[var];
+	}
+
+	@Override
+	public double[] getValues(int first, int nbValues) throws MIPException {
+		if(this.bestSol == null)
+			throw new MIPException("No solution available");
+		return Arrays.copyOfRange(this.bestSol, first, first + nbValues);
+	}
+
+	@Override
+	public int getNbVars() {
+		return this.nbVars;
+	}
+
+	@Override
+	public void clear() {
+		this.nbVars = 0;
+		this.varLB = new double[64];
+		this.varUB = new double[64];
+		this.rowLB = new double[64];
+		this.rowUB = new double[64];
+		this.cost = new double[64];
+		this.integer = new boolean[64];
+		this.relaxed = new boolean[64];
+		this.rowVars.clear();
+		this.rowCoefs.clear();
+		this.rowRhs.clear();
+		this.rowEq.clear();
+		this.startVars = null;
+		this.startValues = null;
+		this.nbCuts = 0;
+		this.isBuilt = false;
+		this.hasBasis = false;
+		this.nbEtas = 0;
+		this.bestSol = null;
+	}
+
+	@Override
+	public void end() {
+		this.clear();
+	}
+
+	/*
+	 * MODEL BUILDING
+	 */
+	/**
+	 * Create variables
+	 * @param nbNewVars	the number of variables to create
+	 * @param lb		the lower bound of the variables
+	 * @param ub		the upper bound of the variables
+	 * @param isInteger	true if the variables are integer
+	 * @return			the index of the first variable created
+	 */
+	private int addVars(int nbNewVars, double lb, double ub, boolean isInteger) {
+		int first = this.nbVars;
+		if(this.nbVars + nbNewVars > this.varLB.length) {
+			int capacity = Math.max(2 * this.varLB.length, this.nbVars + nbNewVars);
+			this.varLB = Arrays.copyOf(this.varLB, capacity);
+			this.varUB = Arrays.copyOf(this.varUB, capacity);
+			this.rowLB = Arrays.copyOf(this.rowLB, capacity);
+			this.rowUB = Arrays.copyOf(this.rowUB, capacity);
+			this.cost = Arrays.copyOf(this.cost, capacity);
+			this.integer = Arrays.copyOf(this.integer, capacity);
+			this.relaxed = Arrays.copyOf(this.relaxed, capacity);
+		}
+		for(int var = first; var < first + nbNewVars; var++) {
+			this.varLB[var] = (lb <= -INF_BOUND) ? -INF : lb;
+			this.varUB[var] = (ub >= INF_BOUND) ? INF : ub;
+			this.rowLB[var] = -INF;
+			this.rowUB[var] = INF;
+			this.integer[var] = isInteger;
+		}
+		this.nbVars += nbNewVars;
+		this.isBuilt = false;
+		return first;
+	}
+
+	/**
+	 * Add a constraint to the model, or tighten the bounds of its variable if it has a single variable
+	 * @param vars		the variables of the left-hand side of the constraint
+	 * @param coefs		the coefficients of the variables of vars
+	 * @param rhs		the right-hand side of the constraint
+	 * @param isEq		true for an equality constraint, false for a <= constraint
+	 */
+	private void addRow(int[] vars, double[] coefs, double rhs, boolean isEq) {
+		boolean singleVar = vars.length > 0;
+		double coef = 0;
+		for(int term = 0; term < vars.length; term++) {
+			singleVar &= vars[term] == vars[0];
+			coef += coefs[term];
+		}
+		if(singleVar && Math.abs(coef) > PIVOT_TOL) {
+			if(isEq || coef > 0)
+				this.rowUB[vars[0]] = Math.min(this.rowUB[vars[0]], rhs / coef);
+			if(isEq || coef < 0)
+				this.rowLB[vars[0]] = Math.max(this.rowLB[vars[0]], rhs / coef);
+			return;
+		}
+		this.rowVars.add(vars);
+		this.rowCoefs.add(coefs);
+		this.rowRhs.add(rhs);
+		this.rowEq.add(isEq);
+		this.isBuilt = false;
+	}
+
+	/**
+	 *
+	 * @param expr	a linear expression
+	 * @return		the variables of the terms of the expression
+	 */
+	private static int[] toVars(LinearExpr expr) {
+		int[] vars = new int[expr.getNbTerms()];
+		for(int term = 0; term < vars.length; term++)
+			vars[term] = expr.getVar(term);
+		return vars;
+	}
+
+	/**
+	 *
+	 * @param expr	a linear expression
+	 * @return		the coefficients of the terms of the expression
+	 */
+	private static double[] toCoefs(LinearExpr expr) {
+		double[] coefs = new double[expr.getNbTerms()];
+		for(int term = 0; term < coefs.length; term++)
+			coefs[term] = expr.getCoef(term);
+		return coefs;
+	}
+
+	/**
+	 * Build the linear program corresponding to the model, with one slack variable for each constraint
+	 * @throws MIPException if the model is too large to be indexed
+	 */
+	private void buildLP() throws MIPException {
+		long nbNonzeros = 0;
+		for(int[] vars : this.rowVars)
+			nbNonzeros += vars.length;
+		if((long) this.nbVars + this.rowVars.size() > Integer.MAX_VALUE / 2 || nbNonzeros > Integer.MAX_VALUE / 2)
+			throw new MIPException("The model is too large for the Java MIP backend (" + this.nbVars + " variables, "
+					+ this.rowVars.size() + " constraints, " + nbNonzeros + " nonzeros)");
+		this.n = this.nbVars;
+		this.m = this.rowVars.size();
+
+		/* Matrix of the constraints, column by column */
+		this.colStart = new int[this.n + 1];
+		for(int[] vars : this.rowVars) {
+			for(int var : vars)
+				this.colStart[var + 1]++;
+		}
+		for(int j = 0; j < this.n; j++)
+			this.colStart[j + 1] += this.colStart[j];
+		this.colRows = new int[this.colStart[this.n]];
+		this.colVals = new double[this.colStart[this.n]];
+		int[] fill = Arrays.copyOf(this.colStart, this.n);
+		this.b = new double[this.m];
+		for(int i = 0; i < this.m; i++) {
+			int[] vars = this.rowVars.get(i);
+			double[] coefs = this.rowCoefs.get(i);
+			for(int term = 0; term < vars.length; term++) {
+				this.colRows[fill[vars[term]]] = i;
+				this.colVals[fill[vars[term]]] = coefs[term];
+				fill[vars[term]]++;
+			}
+			this.b[i] = this.rowRhs.get(i);
+		}
+		/* Locks of the variables: increasing a variable with a positive coefficient in a <= constraint may violate it, and
+		 * decreasing a variable with a negative one, whereas any change may violate an equality */
+		this.upLocks = new int[this.n];
+		this.downLocks = new int[this.n];
+		for(int j = 0; j < this.n; j++) {
+			for(int k = this.colStart[j]; k < this.colStart[j + 1]; k++) {
+				if(this.rowEq.get(this.colRows[k]) || this.colVals[k] > 0)
+					this.upLocks[j]++;
+				if(this.rowEq.get(this.colRows[k]) || this.colVals[k] < 0)
+					this.downLocks[j]++;
+			}
+		}
+
+		this.c = new double[this.n + this.m];
+		System.arraycopy(this.cost, 0, this.c, 0, this.n);
+		this.l = new double[this.n + this.m];
+		this.u = new double[this.n + this.m];
+		this.rootL = new double[this.n + this.m];
+		this.rootU = new double[this.n + this.m];
+		/* The slack variable of a <= constraint is nonnegative, that of an equality is fixed to 0 */
+		for(int i = 0; i < this.m; i++)
+			this.rootU[this.n + i] = this.rowEq.get(i) ? 0 : INF;
+		this.touched = new boolean[this.n + this.m];
+		this.touchedVars = new int[this.n + this.m];
+		this.head = new int[this.m];
+		this.status = new int[this.n + this.m];
+		this.x = new double[this.n + this.m];
+		this.d = new double[this.n + this.m];
+		this.isBuilt = true;
+		this.hasBasis = false;
+	}
+
+	/*
+	 * BRANCH-AND-BOUND
+	 */
+	/**
+	 * Solve the linear program with the integer variables fixed to their value in the starting point, and keep the solution if it is integer
+	 */
+	private void solveStart() {
+		for(int startIndex = 0; startIndex < this.startVars.length; startIndex++) {
+			int var = this.startVars[startIndex];
+			if(var < this.n && this.isInteger(var)) {
+				double value = Math.max(this.rootL[var], Math.min(this.rootU[var], Math.rint(this.startValues[startIndex])));
+				this.setBounds(var, value, value);
+			}
+		}
+		this.updateNonbasic();
+		if(this.dualSimplex(INF) == OPTIMAL && this.findBranchingVar() < 0)
+			this.setIncumbent(Arrays.copyOf(this.x, this.n), this.getLPObjective(), -INF);
+		this.resetBounds();
+	}
+
+	/**
+	 * Explore the branch-and-bound tree until it is exhausted or the time limit is reached. The search dives from a node to
+	 * its child closest to the solution of the relaxation as long as no solution is known. Afterwards, it selects the open
+	 * node with the best bound and only dives from one of every DIVE_FREQ selected nodes, to keep finding better solutions.
+	 * The primal heuristics run at the root and every HEUR_FREQ nodes, within their share of the resolution time.
+	 */
+	private void branchAndBound() throws MIPException {
+		PriorityQueue<Node> nodes = new PriorityQueue<Node>(BEST_BOUND);
+		Node node = new Node(null, -1, 0, 0, -INF);
+		boolean complete = true;
+		boolean diving = true;
+		int nbSelected = 0;
+		int nbSolved = 0;
+		long startTime = System.nanoTime();
+		long heurTime = 0;
+		/* The nodes dropped without being solved keep their bound in the bound of the tree */
+		double droppedBound = INF;
+		while(node != null || !nodes.isEmpty()) {
+			if(node == null) {
+				node = nodes.poll();
+				diving = this.bestSol == null || ++nbSelected % DIVE_FREQ == 0;
+			}
+			if(System.nanoTime() > this.deadline) {
+				nodes.add(node);
+				complete = false;
+				break;
+			}
+			if(node.bound >= this.getCutoff()) {
+				node = null;
+				continue;
+			}
+			this.applyNode(node);
+			int result = this.dualSimplex(this.getCutoff());
+			if(node.var < 0)
+				result = this.separateRoot(result);
+			if(result == TIMEOUT) {
+				nodes.add(node);
+				complete = false;
+				break;
+			}
+			if(result == ITER_LIMIT) {
+				complete = false;
+				droppedBound = Math.min(droppedBound, node.bound);
+			}
+			double obj = this.getLPObjective();
+			if(result != OPTIMAL || obj >= this.getCutoff()) {
+				node = null;
+				continue;
+			}
+			nbSolved++;
+
+			/* The bound of the tree, for the solutions found in the node */
+			double treeBound = Math.min(node.bound, droppedBound);
+			if(!nodes.isEmpty())
+				treeBound = Math.min(treeBound, nodes.peek().bound);
+			int branchVar = this.findBranchingVar();
+			if(branchVar < 0) {
+				this.setIncumbent(Arrays.copyOf(this.x, this.n), obj, treeBound);
+				node = null;
+				continue;
+			}
+			/* The heuristics change the bounds and the solution of the linear program, the children are built beforehand */
+			double value = this.x[branchVar];
+			Node down = new Node(node, branchVar, this.l[branchVar], Math.floor(value), obj);
+			Node up = new Node(node, branchVar, Math.ceil(value), this.u[branchVar], obj);
+			if(node.var < 0 || (nbSolved % HEUR_FREQ == 0 && heurTime < HEUR_TIME_SHARE * (System.nanoTime() - startTime))) {
+				long heurStart = System.nanoTime();
+				if(!this.roundSolution(treeBound))
+					this.dive(treeBound);
+				heurTime += System.nanoTime() - heurStart;
+			}
+
+			/* A dive goes on with the child closest to the value of the variable, the other one is kept for later */
+			if(!diving) {
+				nodes.add(down);
+				nodes.add(up);
+				node = null;
+			}
+			else if(value - Math.floor(value) >= 0.5) {
+				nodes.add(down);
+				node = up;
+			}
+			else {
+				nodes.add(up);
+				node = down;
+			}
+		}
+
+		if(complete) {
+			this.bestBound = this.bestObj;
+			this.solStatus = (this.bestSol != null) ? "Optimal" : "Infeasible";
+		}
+		else {
+			/* Without a solution, the bound is that of the open and dropped nodes (-INF if the root was not solved) */
+			this.bestBound = Math.min(this.bestObj, droppedBound);
+			if(!nodes.isEmpty())
+				this.bestBound = Math.min(this.bestBound, nodes.peek().bound);
+			this.solStatus = (this.bestSol != null) ? "Feasible" : "Unknown";
+		}
+		if(this.trajectory != null)
+			this.trajectory.record((this.bestSol != null) ? this.bestObj : Double.NaN, this.bestBound);
+	}
+
+	/**
+	 * Keep a solution if it improves the best one
+	 * @param sol		the values of the variables of the model
+	 * @param obj		the objective value of the solution
+	 * @param bound		the lower bound of the tree when the solution is found
+	 */
+	private void setIncumbent(double[] sol, double obj, double bound) {
+		if(obj >= this.getCutoff())
+			return;
+		this.bestSol = sol;
+		this.bestObj = obj;
+		if(this.trajectory != null)
+			this.trajectory.record(obj, bound);
+	}
+
+	/**
+	 * Round the solution of the current linear program: each fractional variable is rounded in a direction in which it has no
+	 * lock, so that the rounded solution satisfies all the constraints satisfied by the solution of the linear program
+	 * @param bound	the lower bound of the tree, recorded with the solution
+	 * @return		true if all the fractional variables could be rounded
+	 */
+	private boolean roundSolution(double bound) {
+		double[] sol = Arrays.copyOf(this.x, this.n);
+		double obj = 0;
+		for(int j = 0; j < this.n; j++) {
+			if(this.isInteger(j)) {
+				double frac = sol[j] - Math.floor(sol[j]);
+				if(frac <= INT_TOL || frac >= 1 - INT_TOL)
+					sol[j] = Math.rint(sol[j]);
+				else if(this.downLocks[j] == 0)
+					sol[j] = Math.floor(sol[j]);
+				else if(this.upLocks[j] == 0)
+					sol[j] = Math.ceil(sol[j]);
+				else
+					return false;
+			}
+			obj += this.c[j] * sol[j];
+		}
+		this.setIncumbent(sol, obj, bound);
+		return true;
+	}
+
+	/**
+	 * Fractional diving from the solution of the current linear program: fix the fractional variable closest to an integer to
+	 * this integer and solve the linear program again, until its solution can be rounded. The variables without lock in some
+	 * direction are left to the rounding. When the linear program becomes infeasible, the last variable fixed is fixed to the
+	 * other integer instead, and the dive stops if it is infeasible again. The bounds of the node are left changed.
+	 * @param bound	the lower bound of the tree, recorded with the solutions found
+	 */
+	private void dive(double bound) {
+		for(int depth = 0; depth < this.n && System.nanoTime() < this.deadline; depth++) {
+			if(this.roundSolution(bound))
+				return;
+			int diveVar = -1;
+			double minDist = INF;
+			for(int j = 0; j < this.n; j++) {
+				if(this.isInteger(j) && this.upLocks[j] > 0 && this.downLocks[j] > 0) {
+					double dist = Math.min(this.x[j] - Math.floor(this.x[j]), Math.ceil(this.x[j]) - this.x[j]);
+					if(dist > INT_TOL && dist < minDist) {
+						minDist = dist;
+						diveVar = j;
+					}
+				}
+			}
+			if(diveVar < 0)
+				return;
+
+			double value = this.x[diveVar];
+			double lb = this.l[diveVar];
+			double ub = this.u[diveVar];
+			boolean roundUp = value - Math.floor(value) >= 0.5;
+			for(int attempt = 0; attempt < 2; attempt++, roundUp = !roundUp) {
+				if(roundUp)
+					this.setBounds(diveVar, Math.ceil(value), ub);
+				else
+					this.setBounds(diveVar, lb, Math.floor(value));
+				this.updateNonbasic();
+				int result = this.dualSimplex(this.getCutoff());
+				if(result == OPTIMAL)
+					break;
+				if((result != INFEASIBLE && result != CUTOFF) || attempt == 1)
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Add the cuts violated by the solution of the root relaxation and solve it again, for a few rounds, until the bound stops improving
+	 * @param result	the result of the resolution of the root relaxation
+	 * @return			the result of the last resolution of the root relaxation
+	 * @throws MIPException
+	 */
+	private int separateRoot(int result) throws MIPException {
+		RowBatch cuts = new RowBatch();
+		long separationDeadline = System.nanoTime() + (long) Math.min(CUT_TIME_SHARE * this.timeLimit * 1e9, Long.MAX_VALUE / 4);
+		double bound = this.getLPObjective();
+		for(int round = 0; round < CUT_ROUNDS && result == OPTIMAL && this.separator != null && this.nbCuts < MAX_CUTS; round++) {
+			cuts.clear();
+			this.separator.separate(Arrays.copyOf(this.x, this.n), cuts);
+			if(cuts.getNbRows() == 0 || System.nanoTime() > separationDeadline)
+				break;
+			this.appendCuts(cuts);
+			result = this.dualSimplex(this.getCutoff());
+			double previousBound = bound;
+			bound = this.getLPObjective();
+			if(bound - previousBound < CUT_TAILOFF * Math.abs(previousBound))
+				break;
+		}
+		return result;
+	}
+
+	/**
+	 * Add cuts to the model and to the current linear program, keeping the current basis: the slack variables of the cuts
+	 * enter the basis, so that the basis remains dual feasible and the dual simplex goes on from it
+	 * @param cuts	the cuts to add
+	 * @throws MIPException
+	 */
+	private void appendCuts(RowBatch cuts) throws MIPException {
+		int oldM = this.m;
+		int[] oldHead = this.head;
+		int[] oldStatus = this.status;
+		double[] oldX = this.x;
+		double[] oldD = this.d;
+		double[] oldL = this.l;
+		double[] oldU = this.u;
+		double[] oldRootL = this.rootL;
+		double[] oldRootU = this.rootU;
+		boolean[] oldTouched = this.touched;
+		int[] oldTouchedVars = this.touchedVars;
+		int oldNbTouched = this.nbTouched;
+
+		this.addRows(cuts);
+		this.nbCuts += cuts.getNbRows();
+		this.buildLP();
+
+		/* The variables already in the linear program keep their index, the slack variables of the cuts follow them */
+		int oldSize = this.n + oldM;
+		System.arraycopy(oldStatus, 0, this.status, 0, oldSize);
+		System.arraycopy(oldX, 0, this.x, 0, oldSize);
+		System.arraycopy(oldD, 0, this.d, 0, oldSize);
+		System.arraycopy(oldL, 0, this.l, 0, oldSize);
+		System.arraycopy(oldU, 0, this.u, 0, oldSize);
+		System.arraycopy(oldRootL, 0, this.rootL, 0, oldSize);
+		System.arraycopy(oldRootU, 0, this.rootU, 0, oldSize);
+		System.arraycopy(oldTouched, 0, this.touched, 0, oldSize);
+		System.arraycopy(oldTouchedVars, 0, this.touchedVars, 0, oldNbTouched);
+		this.nbTouched = oldNbTouched;
+		System.arraycopy(oldHead, 0, this.head, 0, oldM);
+
+		for(int i = oldM; i < this.m; i++) {
+			int slack = this.n + i;
+			this.head[i] = slack;
+			this.status[slack] = BASIC;
+			this.d[slack] = 0;
+			this.l[slack] = this.rootL[slack];
+			this.u[slack] = this.rootU[slack];
+		}
+		/* The dual values of the cuts are 0, the factorization of the extended basis leaves the reduced costs unchanged */
+		this.hasBasis = true;
+		this.refactor();
+	}
+
+	/**
+	 *
+	 * @return	the objective value above which a node cannot improve the best solution significantly
+	 */
+	private double getCutoff() {
+		if(this.bestSol == null)
+			return INF;
+		return this.bestObj - Math.max(INT_TOL, MIP_GAP * Math.abs(this.bestObj));
+	}
+
+	/**
+	 *
+	 * @return	the fractional integer variable with the largest product of its fractionality by its cost (so that the expensive decisions,
+	 * 			such as the opening of the depots, are taken first), -1 if all the integer variables have an integer value
+	 */
+	private int findBranchingVar() {
+		int branchVar = -1;
+		double maxScore = 0;
+		for(int j = 0; j < this.n; j++) {
+			if(this.isInteger(j)) {
+				double frac = Math.min(this.x[j] - Math.floor(this.x[j]), Math.ceil(this.x[j]) - this.x[j]);
+				double score = frac * Math.max(1, Math.abs(this.c[j]));
+				if(frac > INT_TOL && score > maxScore) {
+					maxScore = score;
+					branchVar = j;
+				}
+			}
+		}
+		return branchVar;
+	}
+
+	/**
+	 * Set the bounds of the variables to those of a node of the tree
+	 * @param node	the node of interest
+	 */
+	private void applyNode(Node node) {
+		this.resetBounds();
+		ArrayList<Node> branch = new ArrayList<Node>();
+		for(Node ancestor = node; ancestor != null && ancestor.var > -1; ancestor = ancestor.parent)
+			branch.add(ancestor);
+		for(int depth = branch.size() - 1; depth > -1; depth--)
+			this.setBounds(branch.get(depth).var, branch.get(depth).lb, branch.get(depth).ub);
+		this.updateNonbasic();
+	}
+
+	/**
+	 * Change the bounds of a variable in the current node
+	 * @param var	the index of the variable
+	 * @param lb	the new lower bound
+	 * @param ub	the new upper bound
+	 */
+	private void setBounds(int var, double lb, double ub) {
+		this.l[var] = lb;
+		this.u[var] = ub;
+		if(!this.touched[var]) {
+			this.touched[var] = true;
+			this.touchedVars[this.nbTouched++] = var;
+		}
+	}
+
+	/**
+	 * Set the bounds of all the variables back to those of the root
+	 */
+	private void resetBounds() {
+		for(int touchedIndex = 0; touchedIndex < this.nbTouched; touchedIndex++) {
+			int var = this.touchedVars[touchedIndex];
+			this.l[var] = this.rootL[var];
+			this.u[var] = this.rootU[var];
+			this.touched[var] = false;
+		}
+		this.nbTouched = 0;
+	}
+
+	/**
+	 *
+	 * @param var	the index of a variable
+	 * @return		true if the variable must take an integer value
+	 */
+	private boolean isInteger(int var) {
+		return var < this.n && this.integer[var] && !this.relaxed[var];
+	}
+
+	/*
+	 * DUAL SIMPLEX
+	 */
+	/**
+	 * Start from the basis made of the slack variables, with the other variables at the bound that makes the basis dual feasible
+	 */
+	private void initBasis() {
+		this.nbEtas = 0;
+		for(int i = 0; i < this.m; i++) {
+			this.head[i] = this.n + i;
+			this.status[this.n + i] = BASIC;
+		}
+		for(int j = 0; j < this.n; j++) {
+			this.status[j] = (this.c[j] >= 0) ? AT_LB : AT_UB;
+			this.d[j] = this.c[j];
+		}
+		for(int i = 0; i < this.m; i++)
+			this.d[this.n + i] = 0;
+		this.nbPivots = 0;
+		this.hasBasis = true;
+	}
+
+	/**
+	 * Put the nonbasic variables at the bound given by their status, choosing the bound that keeps the reduced costs dual feasible,
+	 * then update the value of the basic variables accordingly
+	 */
+	private void updateNonbasic() {
+		/* Variation of the contribution of the nonbasic variables to each constraint */
+		double[] shift = new double[this.m];
+		boolean hasMoved = false;
+		for(int j = 0; j < this.n + this.m; j++) {
+			double previous = this.x[j];
+			if(this.status[j] == BASIC)
+				continue;
+			if(this.d[j] < -DUAL_TOL && this.u[j] > this.l[j]) {
+				/* A variable with a negative reduced cost must be at its upper bound */
+				if(this.u[j] == INF)
+					this.setBounds(j, this.l[j], BIG_BOUND);
+				this.status[j] = AT_UB;
+			}
+			else if(this.d[j] > DUAL_TOL && this.l[j] > -INF) {
+				this.status[j] = AT_LB;
+			}
+			if(this.status[j] == AT_UB && this.u[j] == INF)
+				this.status[j] = AT_LB;
+			if(this.status[j] == AT_LB && this.l[j] == -INF)
+				this.status[j] = AT_UB;
+			this.x[j] = (this.status[j] == AT_UB) ? this.u[j] : this.l[j];
+			if(Double.isInfinite(this.x[j]))
+				this.x[j] = 0;
+			/* x_B = B^-1 (b - N x_N): only the columns of the variables that moved change x_B */
+			double delta = this.x[j] - previous;
+			if(delta != 0) {
+				hasMoved = true;
+				if(j < this.n) {
+					for(int k = this.colStart[j]; k < this.colStart[j + 1]; k++)
+						shift[this.colRows[k]] += delta * this.colVals[k];
+				}
+				else {
+					shift[j - this.n] += delta;
+				}
+			}
+		}
+		if(hasMoved) {
+			this.ftran(shift);
+			for(int i = 0; i < this.m; i++)
+				this.x[this.head[i]] -= shift[i];
+		}
+	}
+
+	/**
+	 * Compute the value of the basic variables from scratch, from the value of the nonbasic ones
+	 */
+	private void computeBasicValues() {
+		double[] rhs = Arrays.copyOf(this.b, this.m);
+		for(int j = 0; j < this.n; j++) {
+			if(this.status[j] != BASIC && this.x[j] != 0) {
+				for(int k = this.colStart[j]; k < this.colStart[j + 1]; k++)
+					rhs[this.colRows[k]] -= this.colVals[k] * this.x[j];
+			}
+		}
+		for(int i = 0; i < this.m; i++) {
+			if(this.status[this.n + i] != BASIC)
+				rhs[i] -= this.x[this.n + i];
+		}
+		this.ftran(rhs);
+		for(int i = 0; i < this.m; i++)
+			this.x[this.head[i]] = rhs[i];
+	}
+
+	/**
+	 * Compute the inverse of the basis from scratch and the reduced costs. The slack variables of the basis keep the position
+	 * of their constraint, and the other basic variables enter one after another, by increasing number of nonzeros, at the free
+	 * position where their column has the largest entry. If the basis is singular, start again from the basis of the slack variables.
+	 */
+	private void refactor() {
+		boolean[] isFree = new boolean[this.m];
+		ArrayList<Integer> basicVars = new ArrayList<Integer>();
+		for(int i = 0; i < this.m; i++) {
+			if(this.head[i] < this.n)
+				basicVars.add(this.head[i]);
+		}
+		for(int i = 0; i < this.m; i++) {
+			isFree[i] = this.status[this.n + i] != BASIC;
+			if(!isFree[i])
+				this.head[i] = this.n + i;
+		}
+		basicVars.sort((var1, var2) -> Integer.compare(this.colStart[var1 + 1] - this.colStart[var1], this.colStart[var2 + 1] - this.colStart[var2]));
+
+		this.nbEtas = 0;
+		double[] col = new double[this.m];
+		for(int var : basicVars) {
+			Arrays.fill(col, 0);
+			for(int k = this.colStart[var]; k < this.colStart[var + 1]; k++)
+				col[this.colRows[k]] += this.colVals[k];
+			this.ftran(col);
+			int pos = -1;
+			double maxPivot = PIVOT_TOL;
+			for(int i = 0; i < this.m; i++) {
+				if(isFree[i] && Math.abs(col[i]) > maxPivot) {
+					maxPivot = Math.abs(col[i]);
+					pos = i;
+				}
+			}
+			if(pos < 0) {
+				this.initBasis();
+				this.updateNonbasic();
+				this.computeBasicValues();
+				return;
+			}
+			this.addEta(col, pos);
+			isFree[pos] = false;
+			this.head[pos] = var;
+		}
+		this.nbPivots = 0;
+
+		/* Reduced costs from the dual values y = c_B B^-1 */
+		double[] y = new double[this.m];
+		for(int i = 0; i < this.m; i++)
+			y[i] = this.c[this.head[i]];
+		this.btran(y);
+		for(int j = 0; j < this.n; j++) {
+			double dj = this.c[j];
+			for(int k = this.colStart[j]; k < this.colStart[j + 1]; k++)
+				dj -= y[this.colRows[k]] * this.colVals[k];
+			this.d[j] = (this.status[j] == BASIC) ? 0 : dj;
+		}
+		for(int i = 0; i < this.m; i++)
+			this.d[this.n + i] = (this.status[this.n + i] == BASIC) ? 0 : -y[i];
+		this.updateNonbasic();
+		this.computeBasicValues();
+	}
+
+	/**
+	 * Append the elementary matrix of a pivot to the inverse of the basis
+	 * @param alphaCol	the column of the entering variable expressed in the current basis (B^-1 a_q)
+	 * @param pos		the position of the basis at which the variable enters
+	 */
+	private void addEta(double[] alphaCol, int pos) {
+		if(this.nbEtas + 1 >= this.etaPos.length) {
+			this.etaPos = Arrays.copyOf(this.etaPos, 2 * this.etaPos.length);
+			this.etaStart = Arrays.copyOf(this.etaStart, 2 * this.etaStart.length);
+		}
+		int size = this.etaStart[this.nbEtas];
+		if(size + this.m > this.etaIdx.length) {
+			int capacity = Math.max(2 * this.etaIdx.length, size + this.m);
+			this.etaIdx = Arrays.copyOf(this.etaIdx, capacity);
+			this.etaVal = Arrays.copyOf(this.etaVal, capacity);
+		}
+		double pivot = alphaCol[pos];
+		for(int i = 0; i < this.m; i++) {
+			if(i == pos || Math.abs(alphaCol[i]) > DROP_TOL) {
+				this.etaIdx[size] = i;
+				this.etaVal[size] = (i == pos) ? 1 / pivot : -alphaCol[i] / pivot;
+				size++;
+			}
+		}
+		this.etaPos[this.nbEtas] = pos;
+		this.nbEtas++;
+		this.etaStart[this.nbEtas] = size;
+	}
+
+	/**
+	 * Solve B v' = v in place: v is indexed by the constraints, v' by the positions of the basis
+	 * @param v	the vector to transform
+	 */
+	private void ftran(double[] v) {
+		for(int eta = 0; eta < this.nbEtas; eta++) {
+			int pos = this.etaPos[eta];
+			double value = v[pos];
+			if(value == 0)
+				continue;
+			v[pos] = 0;
+			for(int e = this.etaStart[eta]; e < this.etaStart[eta + 1]; e++)
+				v[this.etaIdx[e]] += value * this.etaVal[e];
+		}
+	}
+
+	/**
+	 * Solve v' B = v in place: v is indexed by the positions of the basis, v' by the constraints
+	 * @param v	the vector to transform
+	 */
+	private void btran(double[] v) {
+		for(int eta = this.nbEtas - 1; eta > -1; eta--) {
+			double value = 0;
+			for(int e = this.etaStart[eta]; e < this.etaStart[eta + 1]; e++)
+				value += v[this.etaIdx[e]] * this.etaVal[e];
+			v[this.etaPos[eta]] = value;
+		}
+	}
+
+	/**
+	 * Optimize the linear program of the current node with the dual simplex, starting from the current basis
+	 * @param cutoff	the objective value above which the resolution stops
+	 * @return			OPTIMAL, INFEASIBLE, CUTOFF, TIMEOUT or ITER_LIMIT
+	 */
+	private int dualSimplex(double cutoff) {
+		double[] rho = new double[this.m];
+		double[] alphaRow = new double[this.n + this.m];
+		double[] alphaCol = new double[this.m];
+		long maxIter = 50L * (this.n + this.m) + 1000;
+		for(long iter = 0; iter < maxIter; iter++) {
+			if(this.nbPivots >= REFACTOR_FREQ)
+				this.refactor();
+			if((iter & 31) == 0 && System.nanoTime() > this.deadline)
+				return TIMEOUT;
+
+			/* Leaving variable: the basic variable with the largest violation of its bounds */
+			int r = -1;
+			double maxViolation = PRIMAL_TOL;
+			for(int i = 0; i < this.m; i++) {
+				int var = this.head[i];
+				double violation = Math.max(this.l[var] - this.x[var], this.x[var] - this.u[var]);
+				if(violation > maxViolation) {
+					maxViolation = violation;
+					r = i;
+				}
+			}
+			if(r < 0)
+				return OPTIMAL;
+			/* The objective value of the dual simplex increases at each iteration */
+			if(cutoff < INF && this.getLPObjective() > cutoff)
+				return CUTOFF;
+
+			int leaving = this.head[r];
+			boolean toLower = this.x[leaving] < this.l[leaving];
+			double target = toLower ? this.l[leaving] : this.u[leaving];
+			double sign = toLower ? -1 : 1;
+
+			/* Row r of the tableau */
+			Arrays.fill(rho, 0);
+			rho[r] = 1;
+			this.btran(rho);
+			for(int j = 0; j < this.n; j++) {
+				if(this.status[j] == BASIC)
+					continue;
+				double alpha = 0;
+				for(int k = this.colStart[j]; k < this.colStart[j + 1]; k++)
+					alpha += rho[this.colRows[k]] * this.colVals[k];
+				alphaRow[j] = alpha;
+			}
+			for(int i = 0; i < this.m; i++)
+				alphaRow[this.n + i] = rho[i];
+
+			/* Ratio test in two passes (Harris): bound the step with relaxed reduced costs, then take the largest pivot within this bound */
+			double maxRatio = INF;
+			for(int j = 0; j < this.n + this.m; j++) {
+				if(this.isEligible(j, alphaRow[j], sign))
+					maxRatio = Math.min(maxRatio, (Math.abs(this.getDualSlack(j)) + DUAL_TOL) / Math.abs(alphaRow[j]));
+			}
+			if(maxRatio == INF)
+				return INFEASIBLE;
+			int q = -1;
+			double maxPivot = 0;
+			for(int j = 0; j < this.n + this.m; j++) {
+				if(this.isEligible(j, alphaRow[j], sign) && Math.abs(this.getDualSlack(j)) / Math.abs(alphaRow[j]) <= maxRatio
+						&& Math.abs(alphaRow[j]) > maxPivot) {
+					maxPivot = Math.abs(alphaRow[j]);
+					q = j;
+				}
+			}
+
+			/* Column q of the tableau */
+			Arrays.fill(alphaCol, 0);
+			if(q < this.n) {
+				for(int k = this.colStart[q]; k < this.colStart[q + 1]; k++)
+					alphaCol[this.colRows[k]] += this.colVals[k];
+			}
+			else {
+				alphaCol[q - this.n] = 1;
+			}
+			this.ftran(alphaCol);
+			double pivot = alphaCol[r];
+			if(Math.abs(pivot) < PIVOT_TOL) {
+				/* The row and the column disagree: the inverse is not accurate anymore */
+				this.refactor();
+				continue;
+			}
+
+			/* Update the reduced costs */
+			double dualStep = this.d[q] / pivot;
+			for(int j = 0; j < this.n + this.m; j++) {
+				if(this.status[j] != BASIC)
+					this.d[j] -= dualStep * alphaRow[j];
+			}
+			this.d[leaving] = -dualStep;
+			this.d[q] = 0;
+
+			/* Update the primal values */
+			double primalStep = (this.x[leaving] - target) / pivot;
+			for(int i = 0; i < this.m; i++)
+				this.x[this.head[i]] -= primalStep * alphaCol[i];
+			this.x[q] += primalStep;
+			this.x[leaving] = target;
+			this.status[leaving] = toLower ? AT_LB : AT_UB;
+			this.status[q] = BASIC;
+			this.head[r] = q;
+
+			/* Update the inverse of the basis */
+			this.addEta(alphaCol, r);
+			this.nbPivots++;
+		}
+		return ITER_LIMIT;
+	}
+
+	/**
+	 * Check if a nonbasic variable may enter the basis to bring the leaving variable back to its bounds
+	 * @param j		the index of the variable
+	 * @param alpha	the coefficient of the variable in the row of the leaving variable
+	 * @param sign	-1 if the leaving variable is below its lower bound, 1 if it is above its upper bound
+	 * @return		true if the variable is eligible
+	 */
+	private boolean isEligible(int j, double alpha, double sign) {
+		if(this.status[j] == BASIC || this.l[j] == this.u[j] || Math.abs(alpha) < PIVOT_TOL)
+			return false;
+		return (this.status[j] == AT_LB) ? sign * alpha > 0 : sign * alpha < 0;
+	}
+
+	/**
+	 *
+	 * @param j	the index of a nonbasic variable
+	 * @return	the reduced cost of the variable, set to 0 if its sign is slightly wrong
+	 */
+	private double getDualSlack(int j) {
+		return (this.status[j] == AT_LB) ? Math.max(0, this.d[j]) : Math.min(0, this.d[j]);
+	}
+
+	/**
+	 *
+	 * @return	the objective value of the current solution of the linear program
+	 */
+	private double getLPObjective() {
+		double obj = 0;
+		for(int j = 0; j < this.n; j++)
+			obj += this.c[j] * this.x[j];
+		return obj;
+	}
+}
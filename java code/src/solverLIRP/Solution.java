@@ -31,6 +31,7 @@ public class Solution {
 	private String status;
 	private double bestLB;
 	private double solTime;
+	private double buildTime;		// Time spent building the MIP model, in seconds
 	private JSONArray interSol = new JSONArray();
 
 	/*==============================
@@ -197,6 +198,22 @@ public class Solution {
 		return 	this.openingCosts + this.transportationCosts + this.inventoryCosts;
 	}
 
+	/**
+	 * 
+	 * @return	the status of the solver at the end of the resolution
+	 */
+	public String getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * 
+	 * @return	the best lower bound found by the resolution of this solution
+	 */
+	public double getLB() {
+		return this.bestLB;
+	}
+
 	/**
 	 * 
 	 * @return	The solving time necessary to obtain this solution
@@ -205,6 +222,33 @@ public class Solution {
 		return this.solTime;
 	}
 
+	/**
+	 * 
+	 * @return	The time spent building the MIP model of this solution
+	 */
+	public double getBuildTime() {
+		return this.buildTime;
+	}
+
+	/**
+	 * 
+	 * @param lvl	the level of interest
+	 * @return		the number of routes available at level lvl in this solution
+	 */
+	public int getNbRoutes(int lvl) {
+		return this.routes[lvl].length;
+	}
+
+	/**
+	 * 
+	 * @param lvl	the level of the route
+	 * @param r		the route index in level lvl
+	 * @return		the Route object corresponding to index r at level lvl
+	 */
+	public Route getRoute(int lvl, int r) {
+		return this.routes[lvl][r];
+	}
+
 	/*==========================
 	 *         MUTATORS 
 	 ===========================*/
@@ -330,6 +374,14 @@ public class Solution {
 		this.solTime = ((double) timeMillis) / 1000.0;
 	}
 
+	/**
+	 * Set the time spent building the MIP model of the solution (in seconds)
+	 * @param timeMillis	the build time in milliseconds
+	 */
+	public void setBuildTime(long timeMillis) {
+		this.buildTime = ((double) timeMillis) / 1000.0;
+	}
+
 	/**
 	 * 
 	 * @param interResults
@@ -521,6 +573,7 @@ public class Solution {
 		jsonSol.put("objective value", this.storeObj());
 		jsonSol.put("LB", this.bestLB);
 		jsonSol.put("resolution time", this.solTime);
+		jsonSol.put("model build time", this.buildTime);
 		jsonSol.put("intermediate stages", this.interSol);
 
 		jsonSol.put("open depots", this.storeOpenDepots());
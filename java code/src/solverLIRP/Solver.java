@@ -1,64 +1,84 @@
 package solverLIRP;
 
 import java.util.ArrayList;
-import ilog.concert.IloConversion;
-import ilog.concert.IloException;
-import ilog.concert.IloIntVar;
-import ilog.concert.IloLinearIntExpr;
-import ilog.concert.IloLinearNumExpr;
-import ilog.concert.IloNumVar;
-import ilog.concert.IloNumVarType;
-import ilog.concert.IloObjectiveSense;
-import ilog.cplex.IloCplex;
-import ilog.cplex.IloCplex.DoubleParam;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import instanceManager.Client;
 import instanceManager.Instance;
 import tools.Config;
 
 public class Solver{
 
+	private static final double CUT_VIOLATION = 1e-3;	// Minimum violation of a user cut by the solution of the relaxation to be added
+
 	private Instance instLIRP;
 	private Route[][] routes;
 
-	private IloCplex LIRPSolver;
+	private MIPBackend LIRPSolver;		// The MIP solver, selected by Config.MIP_BACKEND
 
 	/*===============
 	 *   VARIABLES 
 	 ================*/
+	/* The variables are identified by their index in LIRPSolver, the arrays store the index of the variable of the first period (or location) */
 	/* Boolean */
-	private IloIntVar[][] y;  			// facility location variables (depots) for each level
+	private int[] y;  					// facility location variables (depots) for each level (y[lvl] + loc)
 	//HashMap<Depot,IloIntVar> dcToVariable;
 	//HashMap<IloIntVar, Depot> variableToDC;
 	
 	/* Integer variables */
-	private IloIntVar[][][] z;  		// = 1 if route r is used on period t (for each level)
+	private int[][] z;  				// = 1 if route r is used on period t (for each level, z[lvl][r] + t)
 	//HashMap<Pair<Route, Integer>,IloIntVar> routeToVariable;
 	//HashMap<IloIntVar, Pair<Route, Integer>> variableToRoute;
 	
-	/* Conversion of variables for the linear relaxation */
-	private ArrayList<IloConversion> mipConversion = new ArrayList<IloConversion>();
-	
 	/* Continuous */
-	private IloNumVar[][][][] q; 			// quantity delivered by route r to location i of level l in period t
+	private int[][][] q; 				// quantity delivered by route r to its stop at position s in level l in period t (q[l][r][s] + t, only for the stops of the route)
 	//HashMap<Pair<Pair<Location, Route>, Integer>,IloNumVar> quantityToVariable; //For all period t, map the quantity delivered to a given location using a given route
 	//HashMap<IloNumVar, Pair<Pair<Location, Route>, Integer>> variableToQuantity; //For all period t, map the quantity delivered to a given location using a given route
 
-	private IloNumVar[][][] invLoc; 	// inventory at depots
+	private int[][] invLoc; 			// inventory at depots (invLoc[lvl][loc] + t)
 	//HashMap<Pair<Location, Integer>,IloNumVar> inventoryToVariable;  //Map the inventory at a given location in period t to real variables
 	//HashMap<IloNumVar, Pair<Location, Integer>> variableToInventory; //Map real variables to the inventory at a given location in period t
 
-	private boolean defObj;				// States if the objective of the MIP has already been defined
+	/* Incidence between routes and locations */
+	private int[][][] visitRoutes;		// For each level and location, the indices of the routes stopping at the location
+	private int[][][] visitPositions;	// For each level and location, the position of the location among the stops of each route of visitRoutes
+	private int[][][] startRoutes;		// For each level and location, the indices of the routes of the lower level starting from the location
+
+	private long buildTime;				// Time spent building the model, in milliseconds (reported with the first solution only)
+	private Trajectory trajectory;		// The incumbents and bounds found during the last resolution
 	private boolean isSolved; 			// States if the MIP has been solved or not
 
+	/* Persistent model */
+	private boolean persistent;			// States if the model is kept from one resolution to the next
+	private boolean[][] active;			// For each level, states if each route may be used in the next resolution (persistent model only)
+	private ArrayList<HashMap<Route, Integer>> routeIndices;	// For each level, the index of each route of the model (persistent model only)
+
+	/**
+	 * Creates a Solver object for the LIRP instance, setting the variables, available routes and the MIP model
+	 * @param LIRPInstance		the instance upon which is built the model	
+	 * @param availableRoutes	the direct and multi-stops routes that are available in this model
+	 * @throws MIPException
+	 */
+	public Solver(Instance instLIRP, RouteMap availRoutes, Solution previousSol, double timeLimit) throws MIPException {
+		this(instLIRP, availRoutes, previousSol, timeLimit, false);
+	}
+
 	/**
-	 * Creates a Solver object for the LIRP instance, setting the variables, available routes and the CPLEX model
+	 * Creates a Solver object for the LIRP instance. If the model is persistent, it is kept after each resolution so that it can be
+	 * solved again on another subset of its routes: all the routes are inactive until activateRoutes is called.
 	 * @param LIRPInstance		the instance upon which is built the model	
 	 * @param availableRoutes	the direct and multi-stops routes that are available in this model
-	 * @throws IloException
+	 * @param previousSol		a solution used as a starting point (null if there is none)
+	 * @param timeLimit			the time limit of the resolution
+	 * @param persistent		true if the model is kept from one resolution to the next
+	 * @throws MIPException
 	 */
-	public Solver(Instance instLIRP, RouteMap availRoutes, Solution previousSol, double timeLimit) throws IloException {
+	public Solver(Instance instLIRP, RouteMap availRoutes, Solution previousSol, double timeLimit, boolean persistent) throws MIPException {
 
 		/* Data */
 		this.instLIRP = instLIRP;
+		this.persistent = persistent;
 		//		System.out.print("ROUTES AVAILABLE : ");
 		//		for(Route r : availRoutes.get(1)) {
 		//				System.out.print("{start: " + r.getStartIndex() + ", stops: " + r.getStops().toString() + "}, ");
@@ -92,83 +112,81 @@ public class Solver{
 		}
 
 		this.isSolved = false;
+		this.buildIncidence();
+		if(this.persistent) {
+			this.active = new boolean[this.instLIRP.getNbLevels()][];
+			this.routeIndices = new ArrayList<HashMap<Route, Integer>>();
+			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+				this.active[lvl] = new boolean[this.routes[lvl].length];
+				this.routeIndices.add(new HashMap<Route, Integer>());
+				for(int r = 0; r < this.routes[lvl].length; r++)
+					this.routeIndices.get(lvl).put(this.routes[lvl][r], r);
+			}
+		}
 
-		/* CPLEX solver */
-		this.LIRPSolver = new IloCplex();
+		/* MIP solver */
+		long startBuild = System.currentTimeMillis();
+		this.LIRPSolver = MIPBackend.create();
 
 		/* Set the time limit */
-		this.LIRPSolver.setParam(DoubleParam.TiLim, timeLimit);
-		//this.LIRPSolver.setParam(DoubleParam.TiLim, 20);
-		this.LIRPSolver.setParam(IloCplex.IntParam.Threads, Config.MAX_THREADS);
+		this.LIRPSolver.setTimeLimit(timeLimit);
+		this.LIRPSolver.setThreads(Config.MAX_THREADS);
+		this.trajectory = new Trajectory(Config.TRAJECTORY_SIZE);
+		this.LIRPSolver.setTrajectory(this.trajectory);
 
 		/* Initialization of the variables */
-		this.initVariables(previousSol);
+		this.initVariables();
 
 		/*=================
 		 *   CONSTRAINTS 
 		 ==================*/
+		/* The rows of each period are assembled in a batch of primitive arrays, handed to the MIP solver at the end of the period */
+		RowBatch batch = new RowBatch();
 		for (int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
 			/*         =========
 			 * Constraints on routes usage
 			           =========          */
-//			for(Location loc : dcToVariable.keySet()) {
-//			for(Pair<Route, Integer> keyP : routeToVariable.keySet()) {
-//				if(keyP.getL().containsStop(loc)) {;
-//			}
-//			}
 			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
 				/* Get the number of locations at this level and at the upper level */
 				int nbLocLvl = this.instLIRP.getNbLocations(lvl);
 
 				/* Each location is served by at most one route in every period (2-3) */
 				for(int loc = 0; loc < nbLocLvl; loc++) {
-					IloLinearIntExpr lhs2 = this.LIRPSolver.linearIntExpr();
-					for (int r = 0; r < this.routes[lvl].length; r++)
-						if(this.routes[lvl][r].containsStop(loc))
-							lhs2.addTerm(1,  this.z[lvl][r][t]);
+					for (int r : this.visitRoutes[lvl][loc])
+						batch.addTerm(1,  this.z[lvl][r] + t);
 					/* If the location is a dc (constraint (3)), the rhs uses the boolean variable y_{j} to check that the location is open */
 					if(lvl < this.instLIRP.getNbLevels() - 1) {
-						lhs2.addTerm(-1, this.y[lvl][loc]);
-						this.LIRPSolver.addLe(lhs2, 0);
+						batch.addTerm(-1, this.y[lvl] + loc);
+						batch.endLe(0);
 					}
 					else {
-						this.LIRPSolver.addLe(lhs2, 1);
+						batch.endLe(1);
 					}
 				}
 
 				/* Constraints on resources available in period t */
-
-				/* The total number of routes used on a given level must be lower than the number of vehicles available for this level (5) */
-				IloLinearIntExpr lhs5 = this.LIRPSolver.linearIntExpr();
-
 				for (int r = 0; r < this.routes[lvl].length; r++) {
 					if(lvl > 0) {
 						/* Each active route must start from an open depot (4) */
-						IloLinearIntExpr lhs4 = this.LIRPSolver.linearIntExpr();
-						lhs4.addTerm(1, this.z[lvl][r][t]);
+						batch.addTerm(1, this.z[lvl][r] + t);
 						/* NB : if lvl == 0 locUP = 0 and we do not explore the following loop */
-						lhs4.addTerm(-1, this.y[lvl - 1][this.routes[lvl][r].getStartIndex()]);
-
-						this.LIRPSolver.addLe(lhs4, 0);
+						batch.addTerm(-1, this.y[lvl - 1] + this.routes[lvl][r].getStartIndex());
+						batch.endLe(0);
 					}
 
 					/* The quantity delivered to the locations of the level through a given route cannot exceed the capacity of a vehicle (6) */
-					IloLinearNumExpr lhs6 = this.LIRPSolver.linearNumExpr();
-					lhs6.addTerm(-this.instLIRP.getCapacityVehicle(lvl), this.z[lvl][r][t]);
-					for(int loc = 0; loc < nbLocLvl; loc++) {
-						lhs6.addTerm(1, this.q[lvl][loc][r][t]);
-						/* A positive quantity can be delivered to location loc using route r only if loc belongs to route r (7) */
-						IloLinearNumExpr lhs7 = this.LIRPSolver.linearNumExpr();
-						lhs7.addTerm(1, this.q[lvl][loc][r][t]);
-						double rhs7 = (this.routes[lvl][r].containsStop(loc)) ? this.instLIRP.getCapacityVehicle(lvl) : 0;
-						this.LIRPSolver.addLe(lhs7, rhs7);
+					batch.addTerm(-this.instLIRP.getCapacityVehicle(lvl), this.z[lvl][r] + t);
+					/* NB: the quantities are only defined for the stops of the route, which replaces constraints (7) */
+					for(int stopPos = 0; stopPos < this.q[lvl][r].length; stopPos++) {
+						batch.addTerm(1, this.q[lvl][r][stopPos] + t);
 					}
-					this.LIRPSolver.addLe(lhs6, 0);
-
-					lhs5.addTerm(1, this.z[lvl][r][t]);
+					batch.endLe(0);
 				}
-				/* The sum of all the routes used at this level in period t must be lower than the fleet size at this level */
-				this.LIRPSolver.addLe(lhs5, this.instLIRP.getNbVehicles(lvl));
+
+				/* The total number of routes used on a given level must be lower than the number of vehicles available for this level (5) */
+				for (int r = 0; r < this.routes[lvl].length; r++)
+					batch.addTerm(1, this.z[lvl][r] + t);
+				batch.endLe(this.instLIRP.getNbVehicles(lvl));
 
 				/*         ======
 				 * Constraints on inventory
@@ -177,127 +195,150 @@ public class Solver{
 				for(int loc = 0; loc < nbLocLvl; loc++) {
 					/* If we are at a dc level, take into account the incoming and outgoing quantities through routes (8) */
 					if(lvl < this.instLIRP.getNbLevels() - 1) {
-						int nbLocDown = this.instLIRP.getNbLocations(lvl + 1);
-						IloLinearNumExpr lhs8 = this.LIRPSolver.linearNumExpr();
-						lhs8.addTerm(-1, this.invLoc[lvl][loc][t]);
+						batch.addTerm(-1, this.invLoc[lvl][loc] + t);
 						double rhs8 = 0;
 						if(t == 0)
 							rhs8 -= this.instLIRP.getDepot(lvl, loc).getInitialInventory();
 						else
-							lhs8.addTerm(1, this.invLoc[lvl][loc][t - 1]);
-						for (int r = 0; r < this.routes[lvl].length; r++) {
-							if(this.routes[lvl][r].containsStop(loc)) {
-								lhs8.addTerm(1, q[lvl][loc][r][t]);
-							}
-
+							batch.addTerm(1, this.invLoc[lvl][loc] + t - 1);
+						for (int visit = 0; visit < this.visitRoutes[lvl][loc].length; visit++) {
+							batch.addTerm(1, this.q[lvl][this.visitRoutes[lvl][loc][visit]][this.visitPositions[lvl][loc][visit]] + t);
 						}
-						for (int rDown = 0; rDown < this.routes[lvl + 1].length; rDown++) {
-							for(int locDown = 0; locDown < nbLocDown; locDown++) {
-								if(this.routes[lvl + 1][rDown].hasStart(loc))
-									lhs8.addTerm(-1, q[lvl + 1][locDown][rDown][t]);
+						for (int rDown : this.startRoutes[lvl][loc]) {
+							for(int stopPos = 0; stopPos < this.q[lvl + 1][rDown].length; stopPos++) {
+								batch.addTerm(-1, this.q[lvl + 1][rDown][stopPos] + t);
 							}
 						}
-						LIRPSolver.addEq(lhs8, rhs8);
+						batch.endEq(rhs8);
 
 						/* Capacity constraints at depots (10) */
-						IloLinearNumExpr lhs10 = this.LIRPSolver.linearNumExpr();
-						lhs10.addTerm(1, this.invLoc[lvl][loc][t]);
-						lhs10.addTerm(-this.instLIRP.getDepot(lvl, loc).getCapacity(), y[lvl][loc]);
-						this.LIRPSolver.addLe(lhs10, 0);
+						batch.addTerm(1, this.invLoc[lvl][loc] + t);
+						batch.addTerm(-this.instLIRP.getDepot(lvl, loc).getCapacity(), this.y[lvl] + loc);
+						batch.endLe(0);
 					}
 					/* If we are at a clients level, take into account the incoming quantities through routes and the final customers demands (9) */
 					else {
-						IloLinearNumExpr lhs9 = this.LIRPSolver.linearNumExpr();
-						lhs9.addTerm(-1, this.invLoc[lvl][loc][t]);
+						batch.addTerm(-1, this.invLoc[lvl][loc] + t);
 						double rhs9 = this.instLIRP.getClient(loc).getDemand(t);
 						if(t == 0)
 							rhs9 -= this.instLIRP.getClient(loc).getInitialInventory();
 						else
-							lhs9.addTerm(1, this.invLoc[lvl][loc][t - 1]);
+							batch.addTerm(1, this.invLoc[lvl][loc] + t - 1);
 
-						for (int r = 0; r < this.routes[lvl].length; r++) {
-							lhs9.addTerm(1, q[lvl][loc][r][t]);
+						for (int visit = 0; visit < this.visitRoutes[lvl][loc].length; visit++) {
+							batch.addTerm(1, this.q[lvl][this.visitRoutes[lvl][loc][visit]][this.visitPositions[lvl][loc][visit]] + t);
 						}
-						LIRPSolver.addEq(lhs9, rhs9);
+						batch.endEq(rhs9);
 
 						/* Stock capacity at the client or ensuring that the inventory is not greater than the sum of remaining demands (11) */
 						double remainingDemand = this.instLIRP.getClient(loc).getCumulDemands(t + 1, this.instLIRP.getNbPeriods());
-						IloLinearNumExpr lhs11 = this.LIRPSolver.linearNumExpr();
-						lhs11.addTerm(1, this.invLoc[lvl][loc][t]);
-						this.LIRPSolver.addLe(lhs11, Math.min(remainingDemand, this.instLIRP.getClient(loc).getCapacity()));
+						batch.addTerm(1, this.invLoc[lvl][loc] + t);
+						batch.endLe(Math.min(remainingDemand, this.instLIRP.getClient(loc).getCapacity()));
 					}
 				}
 			}
+			this.LIRPSolver.addRows(batch);
+			batch.clear();
 		}
+		this.defineObjective();
+		if(Config.USER_CUTS)
+			this.addFlowCoverCuts(0, this.instLIRP.getNbPeriods());
+		this.buildTime = System.currentTimeMillis() - startBuild;
+		System.out.println("Model built in " + (this.buildTime / 1000.0) + "s");
+
+		/* If a starting solution is provided, set the different variables accordingly */
+		this.setStartSolution(previousSol);
 	}
 
 	/*============================
 	 *  VARIABLES INITIALISATION 
 	 =============================*/
 	/**
-	 * Initialize the MIP variables and if a starting solution is provided, set the starting values of the variables to their values in the starting solution
-	 * @param startSol	The solution from which the variables should be initialized
-	 * @throws IloException
+	 * Index the routes stopping at each location and the routes starting from each depot, so that the constraints
+	 * only go through the routes that concern a location
 	 */
-	private void initVariables(Solution startSol) throws IloException {
-
-		this.y = new IloIntVar[this.instLIRP.getNbLevels() - 1][];
-		this.q = new IloNumVar[this.instLIRP.getNbLevels()][][][];
-		this.z = new IloIntVar[this.instLIRP.getNbLevels()][][];
-		this.invLoc = new IloNumVar[this.instLIRP.getNbLevels()][][];
+	private void buildIncidence() {
+		this.visitRoutes = new int[this.instLIRP.getNbLevels()][][];
+		this.visitPositions = new int[this.instLIRP.getNbLevels()][][];
+		this.startRoutes = new int[this.instLIRP.getNbLevels() - 1][][];
 
 		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
 			int nbLocLvl = this.instLIRP.getNbLocations(lvl);
-			if(lvl < this.instLIRP.getNbLevels() - 1) {
-				this.y[lvl] = this.LIRPSolver.boolVarArray(nbLocLvl);
+			/* Count the visits of each location first, to allocate the arrays at their exact size */
+			int[] nbVisits = new int[nbLocLvl];
+			int[] nbStarts = new int[this.instLIRP.getNbLocations(lvl - 1)];
+			for(Route route : this.routes[lvl]) {
+				for(int stop : route.getStops())
+					nbVisits[stop]++;
+				if(lvl > 0 && route.getStartIndex() > -1)
+					nbStarts[route.getStartIndex()]++;
 			}
-			this.z[lvl] = new IloIntVar[this.routes[lvl].length][];
-			this.q[lvl] = new IloNumVar[nbLocLvl][this.routes[lvl].length][];
-			this.invLoc[lvl] = new IloNumVar[nbLocLvl][]; 
-
+			this.visitRoutes[lvl] = new int[nbLocLvl][];
+			this.visitPositions[lvl] = new int[nbLocLvl][];
 			for(int loc = 0; loc < nbLocLvl; loc++) {
-				invLoc[lvl][loc] =  this.LIRPSolver.numVarArray(this.instLIRP.getNbPeriods(), 0, Double.MAX_VALUE);
+				this.visitRoutes[lvl][loc] = new int[nbVisits[loc]];
+				this.visitPositions[lvl][loc] = new int[nbVisits[loc]];
+				nbVisits[loc] = 0;
 			}
-			for(int r = 0; r < this.routes[lvl].length; r++) {
-				this.z[lvl][r] = this.LIRPSolver.boolVarArray(this.instLIRP.getNbPeriods());
-				for(int loc = 0; loc < nbLocLvl; loc++) {
-					this.q[lvl][loc][r] = this.LIRPSolver.numVarArray(this.instLIRP.getNbPeriods(), 0, Double.MAX_VALUE);
+			if(lvl > 0) {
+				this.startRoutes[lvl - 1] = new int[nbStarts.length][];
+				for(int start = 0; start < nbStarts.length; start++) {
+					this.startRoutes[lvl - 1][start] = new int[nbStarts[start]];
+					nbStarts[start] = 0;
 				}
 			}
 
-			/* If a starting solution is provided, set the different variables accordingly */
-			if(startSol != null) {
-				/* Set the depots opened in the starting solution */
-				double[] oDC = new double[this.instLIRP.getNbLocations(lvl - 1)];
-				for(int dc = 0; dc < this.instLIRP.getNbLocations(lvl - 1); dc++) {
-					oDC[dc] = (startSol.isOpenDepot(lvl, dc)) ? 1 : 0;
+			/* Fill the arrays by increasing route index */
+			for(int r = 0; r < this.routes[lvl].length; r++) {
+				int[] stops = this.routes[lvl][r].getStops();
+				for(int stopPos = 0; stopPos < stops.length; stopPos++) {
+					this.visitRoutes[lvl][stops[stopPos]][nbVisits[stops[stopPos]]] = r;
+					this.visitPositions[lvl][stops[stopPos]][nbVisits[stops[stopPos]]] = stopPos;
+					nbVisits[stops[stopPos]]++;
 				}
-				this.LIRPSolver.addMIPStart(this.y[lvl], oDC);
-
-				/* Set up the route usage in the starting solution */
-				for(int r = 0; r < this.routes[lvl].length; r++) {
-					double[] rUsed = new double[this.instLIRP.getNbPeriods()];
-					for(int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
-						rUsed[t] = startSol.isUsedRoute(lvl, r, t) ? 1 : 0;
-					}
-					this.LIRPSolver.addMIPStart(this.z[lvl][r], rUsed);
+				int start = this.routes[lvl][r].getStartIndex();
+				if(lvl > 0 && start > -1) {
+					this.startRoutes[lvl - 1][start][nbStarts[start]] = r;
+					nbStarts[start]++;
 				}
+			}
+		}
+	}
 
-				/* Set up the quantities delivered and the inventory levels in the starting solution */
-				for(int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++) {
-					double[] inv = new double[this.instLIRP.getNbPeriods()];
-					for(int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
-						inv[t] = startSol.getInvLoc(lvl, loc, t);
-					}
-					this.LIRPSolver.addMIPStart(this.invLoc[lvl][loc], inv);
 
-					for(int r = 0; r < this.routes[lvl].length; r++) {
-						double[] del = new double[this.instLIRP.getNbPeriods()];
-						for(int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
-							del[t] = startSol.getQuantityDelivered(lvl, loc, r, t);
-						}
-						this.LIRPSolver.addMIPStart(this.q[lvl][loc][r], del);
-					}
+	/**
+	 * Initialize the MIP variables
+	 * @throws MIPException
+	 */
+	private void initVariables() throws MIPException {
+
+		this.y = new int[this.instLIRP.getNbLevels() - 1];
+		this.q = new int[this.instLIRP.getNbLevels()][][];
+		this.z = new int[this.instLIRP.getNbLevels()][];
+		this.invLoc = new int[this.instLIRP.getNbLevels()][];
+
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			int nbLocLvl = this.instLIRP.getNbLocations(lvl);
+			if(lvl < this.instLIRP.getNbLevels() - 1) {
+				this.y[lvl] = this.LIRPSolver.addBoolVars(nbLocLvl);
+			}
+			this.z[lvl] = new int[this.routes[lvl].length];
+			this.q[lvl] = new int[this.routes[lvl].length][];
+			this.invLoc[lvl] = new int[nbLocLvl]; 
+
+			for(int loc = 0; loc < nbLocLvl; loc++) {
+				this.invLoc[lvl][loc] = this.LIRPSolver.addNumVars(this.instLIRP.getNbPeriods(), 0, Double.MAX_VALUE);
+			}
+			for(int r = 0; r < this.routes[lvl].length; r++) {
+				/* The routes of a persistent model are created inactive (upper bound at 0) */
+				if(this.persistent)
+					this.z[lvl][r] = this.LIRPSolver.addIntVars(this.instLIRP.getNbPeriods(), 0, 0);
+				else
+					this.z[lvl][r] = this.LIRPSolver.addBoolVars(this.instLIRP.getNbPeriods());
+				/* A quantity variable is only created for the locations where the route stops */
+				this.q[lvl][r] = new int[this.routes[lvl][r].getNbStops()];
+				for(int stopPos = 0; stopPos < this.q[lvl][r].length; stopPos++) {
+					this.q[lvl][r][stopPos] = this.LIRPSolver.addNumVars(this.instLIRP.getNbPeriods(), 0, Double.MAX_VALUE);
 				}
 			}
 		}
@@ -309,47 +350,202 @@ public class Solver{
 	/**
 	 * Define the objective function of the LIRP
 	 */
-	private void defineObjective() throws IloException {
-
-		IloNumVar obj = this.LIRPSolver.numVar(0, Double.MAX_VALUE, "obj"); // objective function
+	private void defineObjective() throws MIPException {
 
 		/* Definition of the objective function */
-		IloLinearNumExpr objexpr = this.LIRPSolver.linearNumExpr();
+		LinearExpr objexpr = new LinearExpr();
 
 		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
 			/* Fixed opening costs */
 			if(lvl < this.instLIRP.getNbLevels() - 1) {
 				for (int loc = 0; loc < this.instLIRP.getNbDepots(lvl); loc++) {
-					objexpr.addTerm(this.instLIRP.getDepot(lvl, loc).getFixedCost(), this.y[lvl][loc]);
+					objexpr.addTerm(this.instLIRP.getDepot(lvl, loc).getFixedCost(), this.y[lvl] + loc);
 				}
 			}
 
 			for (int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
 				/* Delivering costs */
 				for (int r = 0; r < this.routes[lvl].length; r++)
-					objexpr.addTerm(this.routes[lvl][r].getCost(), this.z[lvl][r][t]);
+					objexpr.addTerm(this.routes[lvl][r].getCost(), this.z[lvl][r] + t);
 				for (int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++) {
 					if(lvl < this.instLIRP.getNbLevels() - 1) {
 						/* Holding cost incurred by the depots */
-						objexpr.addTerm(this.instLIRP.getDepot(lvl, loc).getHoldingCost(), this.invLoc[lvl][loc][t]);
+						objexpr.addTerm(this.instLIRP.getDepot(lvl, loc).getHoldingCost(), this.invLoc[lvl][loc] + t);
 					}
 					else {
 						/* Holding cost incurred by the clients */
-						objexpr.addTerm(this.instLIRP.getClient(loc).getHoldingCost(), this.invLoc[lvl][loc][t]);
+						objexpr.addTerm(this.instLIRP.getClient(loc).getHoldingCost(), this.invLoc[lvl][loc] + t);
 					}
 				}
 			}
 		}
 
-		this.LIRPSolver.addLe(objexpr, obj);
-		this.LIRPSolver.addObjective(IloObjectiveSense.Minimize, obj);
+		this.LIRPSolver.minimize(objexpr);
+	}
+
+	/*=======================
+	 *   PERSISTENT MODEL 
+	 ========================*/
+	/**
+	 * Restrict a persistent model to a subset of its routes, by setting the upper bound of the usage variables of the other routes to 0
+	 * @param activeMap	the routes that may be used in the next resolution
+	 * @return			true if the routes were activated, false if the model is not persistent or does not contain all of them (it is then left unchanged)
+	 * @throws MIPException
+	 */
+	public boolean activateRoutes(RouteMap activeMap) throws MIPException {
+		if(!this.persistent)
+			return false;
+
+		boolean[][] newActive = new boolean[this.instLIRP.getNbLevels()][];
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			newActive[lvl] = new boolean[this.routes[lvl].length];
+			if(activeMap.get(lvl) != null) {
+				for(Route route : activeMap.get(lvl)) {
+					Integer r = this.routeIndices.get(lvl).get(route);
+					if(r == null)
+						return false;
+					newActive[lvl][r] = true;
+				}
+			}
+		}
+
+		/* Only the bounds of the routes whose status changes are modified */
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			for(int r = 0; r < this.routes[lvl].length; r++) {
+				if(newActive[lvl][r] != this.active[lvl][r]) {
+					for(int t = 0; t < this.instLIRP.getNbPeriods(); t++)
+						this.LIRPSolver.setUB(this.z[lvl][r] + t, newActive[lvl][r] ? 1 : 0);
+				}
+			}
+		}
+		this.active = newActive;
+		this.isSolved = false;
+		return true;
+	}
+
+	/**
+	 * Set a solution as the starting point of the next resolution. The routes of the solution are matched with the routes of the model:
+	 * if all the routes used in the solution are available, the start is complete, otherwise the routes that are not available are dropped
+	 * and the solver repairs the partial start made of the depots and route usages.
+	 * @param startSol	the solution from which the variables should be initialized (null to remove the current starting point)
+	 * @throws MIPException
+	 */
+	public void setStartSolution(Solution startSol) throws MIPException {
+		if(startSol == null) {
+			this.LIRPSolver.setMIPStart(null, null);
+			return;
+		}
+
+		if(this.routeIndices == null) {
+			this.routeIndices = new ArrayList<HashMap<Route, Integer>>();
+			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+				this.routeIndices.add(new HashMap<Route, Integer>());
+				for(int r = 0; r < this.routes[lvl].length; r++)
+					this.routeIndices.get(lvl).put(this.routes[lvl][r], r);
+			}
+		}
+
+		ArrayList<Integer> startVars = new ArrayList<Integer>();
+		ArrayList<Double> startValues = new ArrayList<Double>();
+		/* Index in the solution of the routes of the model (-1 if a route is not in the solution) */
+		int[][] solIndices = new int[this.instLIRP.getNbLevels()][];
+		boolean complete = true;
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			/* Set the depots opened in the starting solution */
+			if(lvl < this.instLIRP.getNbLevels() - 1) {
+				for(int dc = 0; dc < this.instLIRP.getNbLocations(lvl); dc++) {
+					startVars.add(this.y[lvl] + dc);
+					startValues.add(startSol.isOpenDepot(lvl, dc) ? 1.0 : 0.0);
+				}
+			}
+
+			/* Match the routes of the solution with the routes of the model */
+			solIndices[lvl] = new int[this.routes[lvl].length];
+			Arrays.fill(solIndices[lvl], -1);
+			for(int rSol = 0; rSol < startSol.getNbRoutes(lvl); rSol++) {
+				Integer r = this.routeIndices.get(lvl).get(startSol.getRoute(lvl, rSol));
+				if(r != null && (!this.persistent || this.active[lvl][r])) {
+					solIndices[lvl][r] = rSol;
+				}
+				else {
+					for(int t = 0; t < this.instLIRP.getNbPeriods(); t++)
+						complete &= !startSol.isUsedRoute(lvl, rSol, t);
+				}
+			}
+
+			/* Set up the route usage in the starting solution */
+			for(int r = 0; r < this.routes[lvl].length; r++) {
+				if(this.persistent && !this.active[lvl][r])
+					continue;
+				for(int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
+					startVars.add(this.z[lvl][r] + t);
+					startValues.add((solIndices[lvl][r] > -1 && startSol.isUsedRoute(lvl, solIndices[lvl][r], t)) ? 1.0 : 0.0);
+				}
+			}
+		}
+
+		/* The quantities and inventory levels of the solution are only consistent if none of its routes was dropped */
+		if(complete) {
+			for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+				for(int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++) {
+					for(int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
+						startVars.add(this.invLoc[lvl][loc] + t);
+						startValues.add(startSol.getInvLoc(lvl, loc, t));
+					}
+				}
+				for(int r = 0; r < this.routes[lvl].length; r++) {
+					if(solIndices[lvl][r] < 0)
+						continue;
+					int[] stops = this.routes[lvl][r].getStops();
+					for(int stopPos = 0; stopPos < stops.length; stopPos++) {
+						for(int t = 0; t < this.instLIRP.getNbPeriods(); t++) {
+							startVars.add(this.q[lvl][r][stopPos] + t);
+							startValues.add(startSol.getQuantityDelivered(lvl, stops[stopPos], solIndices[lvl][r], t));
+						}
+					}
+				}
+			}
+		}
+
+		int[] vars = new int[startVars.size()];
+		double[] values = new double[startValues.size()];
+		for(int varIndex = 0; varIndex < values.length; varIndex++) {
+			vars[varIndex] = startVars.get(varIndex);
+			values[varIndex] = startValues.get(varIndex);
+		}
+		this.LIRPSolver.setMIPStart(vars, values);
+	}
+
+	/**
+	 * Set the time limit of the next resolution
+	 * @param timeLimit	the time limit of the resolution
+	 * @throws MIPException
+	 */
+	public void setTimeLimit(double timeLimit) throws MIPException {
+		this.LIRPSolver.setTimeLimit(timeLimit);
+	}
+
+	/**
+	 * Set the number of threads used by the MIP solver
+	 * @param nbThreads	the number of threads
+	 * @throws MIPException
+	 */
+	public void setThreads(int nbThreads) throws MIPException {
+		this.LIRPSolver.setThreads(nbThreads);
+	}
+
+	/**
+	 * Release the memory used by the model (the Solver object cannot be used afterwards)
+	 */
+	public void end() {
+		this.LIRPSolver.end();
 	}
 	
 	/**
 	 * Solves the MIP related to the LIRP, setting the value of all the variables
-	 * @throws IloException
+	 * @throws MIPException
 	 */
-	private void solveMIP(boolean relax) throws IloException {
+	private void solveMIP(boolean relax) throws MIPException {
 		/*================
 		 *   RESOLUTION 
 		 =================*/
@@ -368,12 +564,18 @@ public class Solver{
 //					mipConversion.add(this.LIRPSolver.conversion(yl, IloNumVarType.Float)) ;
 //					this.LIRPSolver.add(mipConversion.get(mipConversion.size()-1));
 //			}
-			for (IloIntVar[][] zl_arr : this.z) {
-				for (IloIntVar[] zl : zl_arr) {
-						mipConversion.add(this.LIRPSolver.conversion(zl, IloNumVarType.Float)) ;
-						this.LIRPSolver.add(mipConversion.get(mipConversion.size()-1));
+			int nbRelaxed = 0;
+			for (int[] zl : this.z)
+				nbRelaxed += zl.length * this.instLIRP.getNbPeriods();
+			int[] relaxedVars = new int[nbRelaxed];
+			nbRelaxed = 0;
+			for (int[] zl : this.z) {
+				for (int zr : zl) {
+					for (int t = 0; t < this.instLIRP.getNbPeriods(); t++)
+						relaxedVars[nbRelaxed++] = zr + t;
 				}
-			}	
+			}
+			this.LIRPSolver.relax(relaxedVars);
 			//Ilothis.LIRPSolver.conversion(this.y[], IloNumVarType.Float);
 	         //IloLPMatrix lp = (IloLPMatrix)cplex.LPMatrixIterator().next();
 	      
@@ -392,9 +594,7 @@ public class Solver{
 //			}
 		}
 		
-		if(!this.defObj)
-			this.defineObjective();
-		
+		this.trajectory.start();
 		this.isSolved = this.LIRPSolver.solve();
 		if(relax) {
 			System.out.print("Un-relaxing boolean constaints...");
@@ -410,11 +610,88 @@ public class Solver{
 		}
 	}
 
-	
-	private void addFlowCoverCuts(int start, int end) throws IloException {
-		if(!this.isSolved)
-			this.solveMIP(true);
-		
+	/*=======================
+	 *      USER CUTS 
+	 ========================*/
+	/**
+	 * Register the separation of valid inequalities at the clients level as user cuts, with the (l,S) inequalities
+	 * of the periods l in [start, end[
+	 * @param start	the first period l of the (l,S) inequalities
+	 * @param end	the first period out of the interval
+	 * @throws MIPException
+	 */
+	private void addFlowCoverCuts(int start, int end) throws MIPException {
+		this.LIRPSolver.setCutSeparator((values, cuts) -> this.separateCuts(values, cuts, start, end));
+	}
+
+	/**
+	 * Find the inequalities violated by a solution of the relaxation at the clients level, where Q_t is the quantity delivered
+	 * to a client in period t, Y_t the number of routes visiting it in period t and s_t its inventory at the end of period t:
+	 * - (l,S) inequalities: sum_{t in S} Q_t <= sum_{t in S} min(d_{t..l}, C) Y_t + s_l for a period l and S a subset of [0, l]
+	 *   (what is delivered in a period t of S either serves the demand of [t, l] or is still in stock at the end of l)
+	 * - linking inequalities: the quantity delivered by a route to a stop in period t cannot exceed what the client can receive
+	 *   in period t (its demand plus the bound on its inventory of (11)) if the route is used
+	 * @param values	the value of each variable in the solution of the relaxation
+	 * @param cuts		the batch in which the violated inequalities are added
+	 * @param start		the first period l of the (l,S) inequalities
+	 * @param end		the first period out of the interval
+	 */
+	private void separateCuts(double[] values, RowBatch cuts, int start, int end) {
+		int lvl = this.instLIRP.getNbLevels() - 1;
+		int nbPeriods = this.instLIRP.getNbPeriods();
+		double capaVehicle = this.instLIRP.getCapacityVehicle(lvl);
+		double[] delivered = new double[nbPeriods];
+		double[] visited = new double[nbPeriods];
+		double[] cumulDemands = new double[nbPeriods + 1];
+
+		for(int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++) {
+			Client client = this.instLIRP.getClient(loc);
+			int[] visitRoutesLoc = this.visitRoutes[lvl][loc];
+			int[] visitPositionsLoc = this.visitPositions[lvl][loc];
+			for(int t = 0; t < nbPeriods; t++) {
+				cumulDemands[t + 1] = cumulDemands[t] + client.getDemand(t);
+				delivered[t] = 0;
+				visited[t] = 0;
+				for(int visit = 0; visit < visitRoutesLoc.length; visit++) {
+					delivered[t] += values[this.q[lvl][visitRoutesLoc[visit]][visitPositionsLoc[visit]] + t];
+					visited[t] += values[this.z[lvl][visitRoutesLoc[visit]] + t];
+				}
+			}
+
+			/* (l,S) inequalities: S contains the periods whose term is positive in the solution */
+			for(int l = start; l < end; l++) {
+				double violation = -values[this.invLoc[lvl][loc] + l];
+				for(int t = 0; t <= l; t++)
+					violation += Math.max(0, delivered[t] - Math.min(cumulDemands[l + 1] - cumulDemands[t], capaVehicle) * visited[t]);
+				if(violation <= CUT_VIOLATION)
+					continue;
+				for(int t = 0; t <= l; t++) {
+					double coef = Math.min(cumulDemands[l + 1] - cumulDemands[t], capaVehicle);
+					if(delivered[t] - coef * visited[t] > 0) {
+						for(int visit = 0; visit < visitRoutesLoc.length; visit++) {
+							cuts.addTerm(1, this.q[lvl][visitRoutesLoc[visit]][visitPositionsLoc[visit]] + t);
+							cuts.addTerm(-coef, this.z[lvl][visitRoutesLoc[visit]] + t);
+						}
+					}
+				}
+				cuts.addTerm(-1, this.invLoc[lvl][loc] + l);
+				cuts.endLe(0);
+			}
+
+			/* Linking inequalities */
+			for(int t = 0; t < nbPeriods; t++) {
+				double maxInventory = Math.min(cumulDemands[nbPeriods] - cumulDemands[t + 1], client.getCapacity());
+				double maxDelivery = Math.min(capaVehicle, client.getDemand(t) + maxInventory);
+				for(int visit = 0; visit < visitRoutesLoc.length; visit++) {
+					int qVar = this.q[lvl][visitRoutesLoc[visit]][visitPositionsLoc[visit]] + t;
+					int zVar = this.z[lvl][visitRoutesLoc[visit]] + t;
+					if(values[qVar] - maxDelivery * values[zVar] > CUT_VIOLATION) {
+						cuts.addTerm(1, qVar).addTerm(-maxDelivery, zVar);
+						cuts.endLe(0);
+					}
+				}
+			}
+		}
 	}
 	
 	/**
@@ -422,12 +699,27 @@ public class Solver{
 	 * @param printStreamSol	the stream on which to print the solution
 	 * @return				the solution obtained from
 	 */
-	public Solution getSolution(boolean relax, double threshold) throws IloException {
+	public Solution getSolution(boolean relax, double threshold) throws MIPException {
 
 		/*===============================
 		 *     SAVE THE SOLVER OUTPUT
 		=================================*/
-		Solution sol  = new Solution(this.instLIRP, this.routes);
+		/* The solution of a persistent model only contains its active routes, solRoutes[lvl] maps the routes of the solution to those of the model */
+		int[][] solRoutes = new int[this.instLIRP.getNbLevels()][];
+		Route[][] routesSol = new Route[this.instLIRP.getNbLevels()][];
+		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
+			solRoutes[lvl] = new int[this.routes[lvl].length];
+			int nbSolRoutes = 0;
+			for(int r = 0; r < this.routes[lvl].length; r++) {
+				if(!this.persistent || this.active[lvl][r])
+					solRoutes[lvl][nbSolRoutes++] = r;
+			}
+			solRoutes[lvl] = Arrays.copyOf(solRoutes[lvl], nbSolRoutes);
+			routesSol[lvl] = new Route[nbSolRoutes];
+			for(int rSol = 0; rSol < nbSolRoutes; rSol++)
+				routesSol[lvl][rSol] = this.routes[lvl][solRoutes[lvl][rSol]];
+		}
+		Solution sol  = new Solution(this.instLIRP, routesSol);
 
 		if(!this.isSolved)
 			this.solveMIP(relax);
@@ -436,7 +728,7 @@ public class Solver{
 		double bestLB = this.LIRPSolver.getBestObjValue();
 
 		//System.out.println(" Best LB : " + bestLB);
-		if (this.LIRPSolver.getStatus().equals(IloCplex.Status.Infeasible)) {
+		if (this.LIRPSolver.isInfeasible()) {
 			System.out.println("There is no solution");
 		}
 		else {
@@ -455,12 +747,15 @@ public class Solver{
 		/*=======================
 		 *    SOLUTION VALUES
 			 ========================*/
+		/* The values of all the variables are fetched at once, then read from the buffer by index */
+		long startExtract = System.currentTimeMillis();
+		double[] values = this.LIRPSolver.getValues(0, this.LIRPSolver.getNbVars());
 		/* Save the status of depots (open/closed) */
 		for(int lvl = 0; lvl < this.instLIRP.getNbLevels(); lvl++) {
 			if(lvl < this.instLIRP.getNbLevels() - 1) {
 				for(int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++) {
-					//double yvar = this.LIRPSolver.getValue(this.y[lvl][loc]);
-					if (this.LIRPSolver.getValue(this.y[lvl][loc]) > threshold)
+					//double yvar = values[this.y[lvl] + loc];
+					if (values[this.y[lvl] + loc] > threshold)
 						sol.setOpenDepot(lvl, loc, true);
 					else
 						sol.setOpenDepot(lvl, loc, false);
@@ -469,37 +764,35 @@ public class Solver{
 
 			/* Save the quantities delivered to each location in each period */
 			for (int t = 0; t < this.instLIRP.getNbPeriods(); t++){
-				for(int r = 0; r < this.routes[lvl].length; r++) {
-					//double zvar = this.LIRPSolver.getValue(this.z[lvl][r][t]);
-					if (this.LIRPSolver.getValue(this.z[lvl][r][t]) > threshold) {
-						sol.setUsedRoute(lvl, r, t, true);
-						for (int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++){
-							double q = this.LIRPSolver.getValue(this.q[lvl][loc][r][t]);
+				for(int rSol = 0; rSol < solRoutes[lvl].length; rSol++) {
+					int r = solRoutes[lvl][rSol];
+					//double zvar = values[this.z[lvl][r] + t];
+					/* Only the stops of the route may receive a positive quantity, the other quantities are left to 0 */
+					int[] stops = this.routes[lvl][r].getStops();
+					if (values[this.z[lvl][r] + t] > threshold) {
+						sol.setUsedRoute(lvl, rSol, t, true);
+						for (int stopPos = 0; stopPos < stops.length; stopPos++){
+							double q = values[this.q[lvl][r][stopPos] + t];
 							if(q > threshold) {
-								sol.setDeliveryLocation(lvl, loc, r, t, q);
+								sol.setDeliveryLocation(lvl, stops[stopPos], rSol, t, q);
 							}
 							else {
-								sol.setDeliveryLocation(lvl, loc, r, t, 0);
+								sol.setDeliveryLocation(lvl, stops[stopPos], rSol, t, 0);
 							}
 						}
 					}
 					else {
-						sol.setUsedRoute(lvl, r, t, false);
-						for (int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++){
-							double q = this.LIRPSolver.getValue(this.q[lvl][loc][r][t]);
-							if(q > threshold) {
-								sol.setDeliveryLocation(lvl, loc, r, t, q);
-							}
-							else {
-								sol.setDeliveryLocation(lvl, loc, r, t, q);
-							}
+						sol.setUsedRoute(lvl, rSol, t, false);
+						for (int stopPos = 0; stopPos < stops.length; stopPos++){
+							double q = values[this.q[lvl][r][stopPos] + t];
+							sol.setDeliveryLocation(lvl, stops[stopPos], rSol, t, q);
 						}
 					}
 				}
 				/* Save the inventory in each location in each period */
 				for (int loc = 0; loc < this.instLIRP.getNbLocations(lvl); loc++){
-					if(this.LIRPSolver.getValue(this.invLoc[lvl][loc][t]) > threshold)
-						sol.setInvLoc(lvl, loc, t, this.LIRPSolver.getValue(this.invLoc[lvl][loc][t]));
+					if(values[this.invLoc[lvl][loc] + t] > threshold)
+						sol.setInvLoc(lvl, loc, t, values[this.invLoc[lvl][loc] + t]);
 					else
 						sol.setInvLoc(lvl, loc, t, 0);
 				}
@@ -507,11 +800,16 @@ public class Solver{
 			}
 		}
 
-		sol.setStatus(this.LIRPSolver.getStatus().toString());
+		System.out.println("Solution extracted in " + (System.currentTimeMillis() - startExtract) + "ms");
+
+		sol.setStatus(this.LIRPSolver.getStatus());
+		sol.setBuildTime(this.buildTime);
+		this.buildTime = 0;
+		this.trajectory.writeTo(sol);
 		sol.setLB(bestLB);
 
 		if(!relax) {
-			Checker.check(sol, this.instLIRP, this.routes);
+			Checker.check(sol, this.instLIRP, routesSol);
 		}
 
 		System.out.print("Nb routes used : ");
@@ -522,16 +820,14 @@ public class Solver{
 
 
 		System.out.println();
-		System.out.print("Cleaning the memory...");
-		try {
-			this.LIRPSolver.getParameterSet().clear();
-	        
-	        this.LIRPSolver.clearCallbacks();
-			this.LIRPSolver.clearModel();
-	    } catch (IloException e) {
-	        System.out.println("Exception clearing model: " + e.getMessage());
-	        this.LIRPSolver.end();
+		/* A persistent model is kept for the next resolution, only the relaxation of its variables is removed */
+		if(this.persistent) {
+			this.LIRPSolver.unrelax();
+			this.isSolved = false;
+			return sol;
 		}
+		System.out.print("Cleaning the memory...");
+		this.LIRPSolver.clear();
 		System.out.println("done.");
 
 		return sol;
@@ -0,0 +1,79 @@
+package solverLIRP;
+
+import org.json.JSONObject;
+
+/**
+ * Trajectory of a MIP resolution: the successive incumbents and lower bounds with the time at which they were found.
+ * The points are stored in a ring buffer of primitive arrays, so that recording a point from a callback of the solver
+ * costs no allocation; when the buffer is full, the oldest points are overwritten.
+ * @author gmas
+ *
+ */
+public class Trajectory {
+
+	private static final double BOUND_STEP = 1e-4;	// Relative improvement of the bound that triggers a new point when the incumbent does not change
+
+	private long[] timestamps;			// The wall-clock time of each point, in milliseconds
+	private double[] incumbents;		// The objective value of the incumbent at each point (Double.NaN if there is none)
+	private double[] bounds;			// The best lower bound at each point
+	private int next;					// The position of the next point in the buffer
+	private long nbPoints;				// The number of points recorded since the start of the resolution (including the overwritten ones)
+	private long startTime;				// The wall-clock time at the start of the resolution, in milliseconds
+
+	/**
+	 * Create an empty trajectory
+	 * @param capacity	the maximum number of points kept
+	 */
+	public Trajectory(int capacity) {
+		this.timestamps = new long[capacity];
+		this.incumbents = new double[capacity];
+		this.bounds = new double[capacity];
+		this.start();
+	}
+
+	/**
+	 * Remove all the points and start a new resolution
+	 */
+	public synchronized void start() {
+		this.next = 0;
+		this.nbPoints = 0;
+		this.startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Record the state of the resolution if there is a new incumbent or if the bound improved significantly since the last point
+	 * @param incumbent	the objective value of the incumbent (Double.NaN if there is none)
+	 * @param bound		the best lower bound
+	 */
+	public synchronized void record(double incumbent, double bound) {
+		if(this.nbPoints > 0) {
+			int last = (this.next + this.timestamps.length - 1) % this.timestamps.length;
+			boolean sameIncumbent = (Double.isNaN(incumbent) && Double.isNaN(this.incumbents[last])) || incumbent == this.incumbents[last];
+			if(sameIncumbent && bound - this.bounds[last] <= BOUND_STEP * Math.abs(this.bounds[last]))
+				return;
+		}
+		this.timestamps[this.next] = System.currentTimeMillis();
+		this.incumbents[this.next] = incumbent;
+		this.bounds[this.next] = bound;
+		this.next = (this.next + 1) % this.timestamps.length;
+		this.nbPoints++;
+	}
+
+	/**
+	 * Add the points of the trajectory to a solution, from the oldest to the most recent
+	 * @param sol	the solution of the resolution
+	 */
+	public synchronized void writeTo(Solution sol) {
+		int nbKept = (int) Math.min(this.nbPoints, this.timestamps.length);
+		int first = (this.next + this.timestamps.length - nbKept) % this.timestamps.length;
+		for(int pointIndex = 0; pointIndex < nbKept; pointIndex++) {
+			int point = (first + pointIndex) % this.timestamps.length;
+			JSONObject jsonPoint = new JSONObject();
+			jsonPoint.put("time", (this.timestamps[point] - this.startTime) / 1000.0);
+			jsonPoint.put("timestamp", this.timestamps[point]);
+			jsonPoint.put("incumbent", Double.isNaN(this.incumbents[point]) ? JSONObject.NULL : this.incumbents[point]);
+			jsonPoint.put("bound", Double.isInfinite(this.bounds[point]) ? JSONObject.NULL : this.bounds[point]);
+			sol.setInterResults(jsonPoint);
+		}
+	}
+}
@@ -10,7 +10,7 @@ import java.util.Random;
  *
  */
 public final class Config {
-	// Random object to generate distributions
+	// Random object to generate the instances (reseeded by RandomStreams.setSeed, the solver uses the streams of RandomStreams)
 	public static Random RAND = new Random(System.currentTimeMillis());
 
 	// Grid size
@@ -46,6 +46,20 @@ public final class Config {
 	public static final double EPSILON = 0.000001; 		// Precision for the constraints
 	public static final double MAIN_TILIM = 7200; 		// Time limit for the solver in seconds
 	public static final int MAX_THREADS = 4;
+	public static int THREAD_BUDGET = MAX_THREADS;		// Number of threads shared by the resolutions running at the same time
+	public static int RSH_WORKERS = 1;					// Number of subsets of routes solved at the same time by RSH (1: one after another)
+	public static int RSH_PORTFOLIO = 1;				// Number of independent trajectories of RSH run at the same time, sharing their best solution
+	public static double PORTFOLIO_GAP = 0;				// Relative gap to the linear relaxation at which the trajectories stop (0: run until the time limit)
+	public static int ELITE_SIZE = 500;					// Maximum number of multi-stops routes of each level kept between two samplings of RSH (0: no limit)
+	public static String CHECKPOINT_FILE = null;		// File in which the state of RSH is saved during the resolution (null: no checkpoint)
+	public static double CHECKPOINT_PERIOD = 600;		// Minimum time between two checkpoints of RSH, in seconds
+	public static boolean RESUME = false;				// States if RSH resumes from its checkpoint file when there is one
+	public static int GEN_THREADS = Runtime.getRuntime().availableProcessors();	// Number of threads used to generate the pool of routes (1: sequential generation)
+	public static long POOL_CACHE_SIZE = 4L << 30;		// Maximum total size of the route pools kept in the cache, in bytes
+	public static boolean REUSE_MODEL = false;			// Keep a single model on all the routes during the route sampling, the samples only change the bounds of the route variables
+	public static boolean USER_CUTS = false;			// Separate the (l,S) and linking inequalities at the clients level as user cuts
+	public static int TRAJECTORY_SIZE = 1024;			// Maximum number of incumbents and bounds recorded during a resolution
+	public static String MIP_BACKEND = "cplex";			// Solver of the MIP models: "cplex" (IBM ILOG CPLEX) or "java" (pure Java branch-and-bound, for small models)
 	
 	public static final double AUX_TILIM = 600;  		// Time limit for the solver in seconds
 	public static final int RECOMPUTE = 2; 				// Number of recomputations using rejected routes in the route sampling algo
@@ -0,0 +1,106 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ * Exact sequencing of the stops of a route by dynamic programming over the subsets of stops (Held-Karp).
+ * The subsets are encoded as bitmasks and all the tables are primitive arrays, so that the cost of
+ * sequencing n stops is in O(2^n * n^2) instead of the O(n!) of an enumeration of the permutations.
+ * @author gmas
+ *
+ */
+public final class HeldKarp {
+
+	/* Maximum number of stops that can be sequenced (the tables have 2^MAX_STOPS * MAX_STOPS entries) */
+	public static final int MAX_STOPS = 16;
+
+	private HeldKarp() {}
+
+	/**
+	 * Compute the shortest tour starting and ending at node 0 and visiting all the other nodes exactly once
+	 * @param times		the flat matrix of travel times between the nodes (times[i * nbNodes + j] is the time from i to j), node 0 being the start of the tour
+	 * @param nbNodes	the number of nodes (start included)
+	 * @param bestOrder	an array of length nbNodes - 1 filled with the nodes (in [1, nbNodes - 1]) in the order in which they are visited on the best tour
+	 * @return			the travel time of the best tour
+	 */
+	public static double findBestTour(double[] times, int nbNodes, int[] bestOrder) {
+		int nbStops = nbNodes - 1;
+		if(nbStops < 1) {
+			return 0;
+		}
+		if(nbStops == 1) {
+			bestOrder[0] = 1;
+			return times[1] + times[nbNodes];
+		}
+		if(nbStops > MAX_STOPS) {
+			System.out.println("Impossible to sequence " + nbStops + " stops (at most " + MAX_STOPS + " allowed)");
+			System.exit(1);
+		}
+
+		int nbSubsets = 1 << nbStops;
+		/* duration[subset * nbStops + last] is the shortest time to leave the start, visit all the stops in subset and end at last */
+		double[] duration = new double[nbSubsets * nbStops];
+		/* pred[subset * nbStops + last] is the stop visited just before last on the corresponding best path */
+		byte[] pred = new byte[nbSubsets * nbStops];
+		Arrays.fill(duration, Double.MAX_VALUE);
+
+		/* Paths visiting a single stop */
+		for(int last = 0; last < nbStops; last++) {
+			duration[(1 << last) * nbStops + last] = times[last + 1];
+			pred[(1 << last) * nbStops + last] = -1;
+		}
+
+		/* Extend the paths by increasing subsets (each subset is processed after all its own subsets) */
+		for(int subset = 1; subset < nbSubsets; subset++) {
+			/* Subsets with a single stop are already initialized */
+			if((subset & (subset - 1)) == 0) {
+				continue;
+			}
+			for(int last = 0; last < nbStops; last++) {
+				if((subset & (1 << last)) == 0) {
+					continue;
+				}
+				int previousSubset = subset ^ (1 << last);
+				double bestDuration = Double.MAX_VALUE;
+				int bestPred = -1;
+				for(int before = 0; before < nbStops; before++) {
+					if((previousSubset & (1 << before)) == 0) {
+						continue;
+					}
+					double candidate = duration[previousSubset * nbStops + before] + times[(before + 1) * nbNodes + last + 1];
+					if(candidate < bestDuration) {
+						bestDuration = candidate;
+						bestPred = before;
+					}
+				}
+				duration[subset * nbStops + last] = bestDuration;
+				pred[subset * nbStops + last] = (byte) bestPred;
+			}
+		}
+
+		/* Close the tour by going back to the start */
+		int fullSubset = nbSubsets - 1;
+		double bestTour = Double.MAX_VALUE;
+		int lastStop = -1;
+		for(int last = 0; last < nbStops; last++) {
+			double candidate = duration[fullSubset * nbStops + last] + times[(last + 1) * nbNodes];
+			if(candidate < bestTour) {
+				bestTour = candidate;
+				lastStop = last;
+			}
+		}
+
+		/* Rebuild the sequence backwards from the predecessors */
+		int subset = fullSubset;
+		int position = nbStops - 1;
+		while(lastStop > -1) {
+			bestOrder[position] = lastStop + 1;
+			int before = pred[subset * nbStops + lastStop];
+			subset ^= (1 << lastStop);
+			lastStop = before;
+			position--;
+		}
+
+		return bestTour;
+	}
+}
@@ -0,0 +1,72 @@
+package tools;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of the random numbers of a run, all derived from a single seed. Each component of the program, and each worker of
+ * a component, draws its numbers from its own SplittableRandom stream: the numbers it gets depend only on the seed, on the
+ * name of the component and on the index of the worker, and not on the other streams or on the order in which the threads
+ * run. Two runs with the same seed are therefore identical, even when they are parallel. The instance generation is
+ * sequential and keeps using Config.RAND, which is reseeded from the same seed.
+ * @author gmas
+ *
+ */
+public final class RandomStreams {
+
+	private static long seed = System.currentTimeMillis();	// The seed from which all the streams are derived
+
+	private RandomStreams() {}
+
+	/**
+	 * Set the seed of the run, before any stream is created
+	 * @param newSeed	the seed from which all the streams are derived
+	 */
+	public static synchronized void setSeed(long newSeed) {
+		seed = newSeed;
+		Config.RAND.setSeed(deriveSeed("generation", 0));
+	}
+
+	/**
+	 *
+	 * @return	the seed from which all the streams are derived
+	 */
+	public static synchronized long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Create the stream of a component used by a single thread
+	 * @param component	the name of the component
+	 * @return			a new random generator, whose numbers only depend on the seed and on the name of the component
+	 */
+	public static SplittableRandom get(String component) {
+		return get(component, 0);
+	}
+
+	/**
+	 * Create the stream of a worker of a component. A SplittableRandom object is not thread-safe, each worker must use its own stream.
+	 * @param component	the name of the component
+	 * @param worker	the index of the worker
+	 * @return			a new random generator, whose numbers only depend on the seed, the name of the component and the index of the worker
+	 */
+	public static SplittableRandom get(String component, int worker) {
+		return new SplittableRandom(deriveSeed(component, worker));
+	}
+
+	/*
+	 * PRIVATE METHODS
+	 */
+	/**
+	 * Mix the seed of the run with the name of a component and the index of a worker
+	 * @param component	the name of the component
+	 * @param worker	the index of the worker
+	 * @return			the seed of the stream of the worker
+	 */
+	private static synchronized long deriveSeed(String component, int worker) {
+		long mixed = seed;
+		for(int charIndex = 0; charIndex < component.length(); charIndex++)
+			mixed = 31 * mixed + component.charAt(charIndex);
+		/* The first number of a SplittableRandom object scrambles the bits of its seed */
+		return new SplittableRandom(new SplittableRandom(mixed).nextLong() + worker).nextLong();
+	}
+}
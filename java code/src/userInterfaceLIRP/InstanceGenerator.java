@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import ilog.concert.IloException;
 import instanceManager.ClientsMap;
 import instanceManager.DemandsMap;
 import instanceManager.DepotsMap;
@@ -14,6 +13,7 @@ import solverLIRP.RouteManager;
 import tools.JSONParser;
 import tools.Pair;
 import tools.Config;
+import tools.RandomStreams;
 
 public class InstanceGenerator {
 
@@ -27,7 +27,16 @@ public class InstanceGenerator {
 	private static double oc_factor = 0;
 	private static double holding_ratio = 1.8;
 
-	public static void main(String[] args) throws IOException, IloException {
+	public static void main(String[] args) throws IOException {
+		/* The generator is always reseeded, so that the seed logged reproduces the instances */
+		long seed = RandomStreams.getSeed();
+		for(int argID = 0; argID < args.length; argID++) {
+			if(args[argID].startsWith("-seed=")) {
+				seed = Long.parseLong(args[argID].substring(args[argID].lastIndexOf("=") + 1));
+			}
+		}
+		RandomStreams.setSeed(seed);
+		System.out.println("Random seed: " + seed);
 		/* Add the fleet specifications for each level */
 		vehicles.add(new Pair<Integer, Double>(100, 200.0));
 		vehicles.add(new Pair<Integer, Double>(200, 75.0));
@@ -1,27 +1,31 @@
 package userInterfaceLIRP;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.HashSet;
 
-import ilog.concert.IloException;
 import instanceManager.Instance;
 import solverLIRP.LocManager;
+import solverLIRP.MIPException;
 import solverLIRP.RSH;
+import solverLIRP.RoutePoolCache;
 import solverLIRP.RouteManager;
 import solverLIRP.Solution;
+import tools.Config;
 import tools.JSONParser;
+import tools.RandomStreams;
 
 public class ResolutionMain {
 	/**
 	 * @param args
 	 * @throws IOException
-	 * @throws IloException
+	 * @throws MIPException
 	 */
 
-	public static void main(String[] args) throws IOException, IloException {	
+	public static void main(String[] args) throws IOException, MIPException {	
 		/*********************
 		 *     PARAMETERS     
 		 *********************/
@@ -31,6 +35,10 @@ public class ResolutionMain {
 
 		boolean withLM = false;
 		boolean presolve = false;
+		boolean streaming = false;
+		String cacheDir = null;
+		/* The random streams are always reseeded, so that the seed logged reproduces the run (including the relocation of the sites) */
+		long seed = RandomStreams.getSeed();
 		for(int argID = 0; argID < args.length; argID++) {
 			if(args[argID].startsWith("-split=")) {
 				splitString = args[argID].substring(args[argID].lastIndexOf("=") + 1);
@@ -44,10 +52,57 @@ public class ResolutionMain {
 			else if(args[argID].startsWith("-ps")) {
 				presolve = true;
 			}
+			else if(args[argID].startsWith("-stream")) {
+				streaming = true;
+			}
+			else if(args[argID].startsWith("-cache=")) {
+				cacheDir = args[argID].substring(args[argID].indexOf("=") + 1);
+			}
+			else if(args[argID].startsWith("-reuse")) {
+				Config.REUSE_MODEL = true;
+			}
+			else if(args[argID].startsWith("-workers=")) {
+				Config.RSH_WORKERS = convertStrToIntArray(args[argID].substring(args[argID].lastIndexOf("=") + 1))[0];
+			}
+			else if(args[argID].startsWith("-portfolio=")) {
+				Config.RSH_PORTFOLIO = convertStrToIntArray(args[argID].substring(args[argID].lastIndexOf("=") + 1))[0];
+			}
+			else if(args[argID].startsWith("-elite=")) {
+				Config.ELITE_SIZE = convertStrToIntArray(args[argID].substring(args[argID].lastIndexOf("=") + 1))[0];
+			}
+			else if(args[argID].startsWith("-gap=")) {
+				Config.PORTFOLIO_GAP = Double.parseDouble(args[argID].substring(args[argID].lastIndexOf("=") + 1));
+			}
+			else if(args[argID].startsWith("-threads=")) {
+				Config.THREAD_BUDGET = convertStrToIntArray(args[argID].substring(args[argID].lastIndexOf("=") + 1))[0];
+			}
+			else if(args[argID].startsWith("-cuts")) {
+				Config.USER_CUTS = true;
+			}
+			else if(args[argID].startsWith("-backend=")) {
+				Config.MIP_BACKEND = args[argID].substring(args[argID].lastIndexOf("=") + 1);
+			}
+			else if(args[argID].startsWith("-resume")) {
+				Config.RESUME = true;
+			}
+			else if(args[argID].startsWith("-checkpoint=")) {
+				Config.CHECKPOINT_PERIOD = Double.parseDouble(args[argID].substring(args[argID].lastIndexOf("=") + 1));
+			}
+			else if(args[argID].startsWith("-seed=")) {
+				seed = Long.parseLong(args[argID].substring(args[argID].lastIndexOf("=") + 1));
+			}
+			else if(args[argID].startsWith("-gen_threads=")) {
+				Config.GEN_THREADS = convertStrToIntArray(args[argID].substring(args[argID].lastIndexOf("=") + 1))[0];
+			}
 			else {
 				fileName = args[argID];
 			}
 		}
+		RandomStreams.setSeed(seed);
+
+		/* The models solved without sampling, with the presolve or without the LocManager need all the routes at once */
+		if(streaming && (splitString.length() == 0 || presolve || !withLM))
+			System.out.println("The routes are only streamed when they are filtered by the LocManager (-split, -lm and no -ps): they will be stored.");
 
 		/* If no filename is given as an input, terminate without solving */
 		if(fileName == "") {
@@ -63,6 +118,8 @@ public class ResolutionMain {
 			
 			String logDir = instDir.substring(0, instDir.lastIndexOf("Instances/")) + "Log files/" + instName +"/";
 			String solDir = instDir.substring(0, instDir.lastIndexOf("Instances/")) + "Solutions/" + instName +"/";
+			if(cacheDir == null)
+				cacheDir = instDir.substring(0, instDir.lastIndexOf("Instances/")) + "Route pools/";
 
 			/* Get all the instance files in the directory */
 			File listInst = new File(instDir);
@@ -110,15 +167,23 @@ public class ResolutionMain {
 						String fileNameLog = logDir + fileNameSol.replace(".json", ".log");
 						System.out.println(fileNameLog);
 						File fileLog = new File(fileNameLog);
-						PrintStream printStreamLog = new PrintStream(fileLog);
+						/* A resumed run adds its trace to the log of the run it resumes */
+						PrintStream printStreamLog = new PrintStream(new FileOutputStream(fileLog, Config.RESUME));
+						/* The state of RSH is saved next to the log, to resume the resolution if it is interrupted */
+						Config.CHECKPOINT_FILE = logDir + fileNameSol.replace(".json", ".ckpt");
 
 						/* Outputs out and err are redirected to the log file */
 						PrintStream original = System.out;
 
 						System.out.print("Creating the RouteManager...");
 						RouteManager rm = new RouteManager(instLIRP);
-						rm.initialize(false);
-						rm.writeToJSONFile(logDir + instName + "_rm.json");
+						/* Read the routes generated by a previous run on the same data if possible, otherwise generate and cache them */
+						RoutePoolCache poolCache = new RoutePoolCache(cacheDir, Config.POOL_CACHE_SIZE);
+						String fingerprint = RoutePoolCache.getFingerprint(instLIRP);
+						if(!poolCache.load(rm, fingerprint)) {
+							rm.initialize(false, streaming);
+							poolCache.store(rm, fingerprint);
+						}
 						System.out.println("Done.");
 						System.out.print("Creating the LocManager...");
 						LocManager lm = withLM ? new LocManager(instLIRP) : null;
@@ -129,11 +194,14 @@ public class ResolutionMain {
 						System.out.print("Solving...");
 						System.setOut(printStreamLog);
 						System.setErr(printStreamLog);
+						/* The seed is logged so that the run can be reproduced with -seed */
+						System.out.println("Random seed: " + RandomStreams.getSeed());
 						long startChrono = System.currentTimeMillis();
 						Solution sol = RSH.computeSolution(instLIRP, rm, loopLvls, splitParam, lm, presolve);
 
 						long stopChrono = System.currentTimeMillis();
-						long duration = (stopChrono - startChrono);
+						/* A resumed run adds the time spent before its interruption */
+						long duration = (stopChrono - startChrono) + (long) (RSH.getResumedTime() * 1000);
 						System.out.println("==================================================");
 						System.out.println("Time to solve the instance: " + duration + " milliseconds");
 						System.out.println("=================================================");
@@ -149,6 +217,10 @@ public class ResolutionMain {
 							System.out.println("Printing the solution in " + fileNameSol);
 							JSONParser.writeJSONToFile(sol.getJSONSol(), solDir + fileNameSol);
 
+							/* The resolution is complete, its checkpoints are not needed anymore */
+							new File(Config.CHECKPOINT_FILE).delete();
+							for(int traj = 0; traj < Config.RSH_PORTFOLIO; traj++)
+								new File(Config.CHECKPOINT_FILE + "." + traj).delete();
 						}
 						else {
 							System.out.println("Error on this instance");